@@ -0,0 +1,13 @@
+#!/bin/bash
+# builds the benchmark jar and runs it once per thread count,
+# every run writes its JSON results to results/threads-<n>.json for comparing against a baseline.
+# THREADS overrides the thread counts, any arguments go to JMH, e.g. a benchmark regex or -p writePercent=1
+set -e
+cd "$(dirname "$0")"
+THREADS=${THREADS:-"1 2 4 8 16"}
+
+mvn -B -q -f ../pom.xml -pl jmh -am package -DskipTests
+mkdir -p results
+for t in $THREADS; do
+    java -jar target/benchmarks.jar -t "$t" -rf json -rff "results/threads-$t.json" "$@"
+done
@@ -0,0 +1,82 @@
+package aqs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// the synchronizers of this package against their JDK counterparts,
+// Mutex against ReentrantLock is part of LockBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynchronizerBenchmark {
+    static final int PERMITS = 64;
+
+    @Param({"1", "8"})
+    public int weight;
+
+    final Semaphore semaphore = new Semaphore(PERMITS);
+    final WeightedSemaphore weightedSemaphore = new WeightedSemaphore(PERMITS);
+
+    @Benchmark
+    public void semaphore() throws InterruptedException {
+        semaphore.acquire(weight);
+        semaphore.release(weight);
+    }
+
+    @Benchmark
+    public void weightedSemaphore() throws InterruptedException {
+        weightedSemaphore.acquire(weight);
+        weightedSemaphore.release(weight);
+    }
+
+    // one round of a latch that is used again and again by the same thread
+    @State(Scope.Thread)
+    public static class Latches {
+        @Param({"4"})
+        public int parties;
+
+        ResettableCountDownLatch resettable;
+
+        @Setup
+        public void setUp() {
+            resettable = new ResettableCountDownLatch(parties);
+        }
+    }
+
+    @Benchmark
+    public CountDownLatch countDownLatchRound(Latches latches) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(latches.parties);
+        for (int i = 0; i < latches.parties; i++) {
+            latch.countDown();
+        }
+        latch.await();
+        return latch;
+    }
+
+    @Benchmark
+    public long resettableLatchRound(Latches latches) throws InterruptedException {
+        ResettableCountDownLatch latch = latches.resettable;
+        for (int i = 0; i < latches.parties; i++) {
+            latch.countDown();
+        }
+        latch.await();
+        latch.reset();
+        return latch.getGeneration();
+    }
+}
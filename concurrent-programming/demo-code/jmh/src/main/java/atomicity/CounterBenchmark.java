@@ -0,0 +1,93 @@
+package atomicity;
+
+import metrics.AdaptiveCounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// what ComparePerformanceAdderVSCAS and CompareMutexAndCASDemo set out to measure:
+// one shared counter incremented by every benchmark thread, run with -t to vary the contention
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterBenchmark {
+    final AtomicLong atomicLong = new AtomicLong();
+    final AtomicLong casTarget = new AtomicLong();
+    final LongAdder longAdder = new LongAdder();
+    final AdaptiveCounter adaptiveCounter = new AdaptiveCounter();
+    final Object monitor = new Object();
+    final ReentrantLock lock = new ReentrantLock();
+    long synchronizedValue;
+    long lockedValue;
+
+    @Benchmark
+    public long atomicLongIncrementAndGet() {
+        return atomicLong.incrementAndGet();
+    }
+
+    // the loop of CASPlusPlusDemo.selfPlus, re-reading the value after every failed CAS
+    @Benchmark
+    public long casLoop() {
+        long v;
+        do {
+            v = casTarget.get();
+        } while (!casTarget.compareAndSet(v, v + 1));
+        return v + 1;
+    }
+
+    @Benchmark
+    public void longAdderIncrement() {
+        longAdder.increment();
+    }
+
+    @Benchmark
+    public long longAdderSum() {
+        return longAdder.sum();
+    }
+
+    @Benchmark
+    public void adaptiveCounterIncrement() {
+        adaptiveCounter.increment();
+    }
+
+    @Benchmark
+    public long adaptiveCounterIncrementAndGet() {
+        return adaptiveCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public long adaptiveCounterSum() {
+        return adaptiveCounter.sum();
+    }
+
+    @Benchmark
+    public long synchronizedIncrement() {
+        synchronized (monitor) {
+            return ++synchronizedValue;
+        }
+    }
+
+    @Benchmark
+    public long reentrantLockIncrement() {
+        lock.lock();
+        try {
+            return ++lockedValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
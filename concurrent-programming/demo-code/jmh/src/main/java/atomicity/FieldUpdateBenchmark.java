@@ -0,0 +1,137 @@
+package atomicity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sun.misc.Unsafe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+// the ways to update User.score: Unsafe with a field offset as CASPlusPlusDemo used to,
+// CASFieldUpdaterDemo's AtomicIntegerFieldUpdater, IntFieldHandle and a bare static final VarHandle.
+// each thread has its own User, this measures the access path, LockBenchmark and
+// CounterBenchmark measure contention
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldUpdateBenchmark {
+    static final Unsafe UNSAFE = UnsafeDemo.getUnsafe();
+    static final long SCORE_OFFSET;
+    static final AtomicIntegerFieldUpdater<User> UPDATER = CASFieldUpdaterDemo.userUpdater;
+    static final IntFieldHandle<User> SCORE = IntFieldHandle.newUpdater(MethodHandles.lookup(), User.class, "score");
+    static final VarHandle SCORE_HANDLE = SCORE.handle();
+
+    static {
+        try {
+            SCORE_OFFSET = UNSAFE.objectFieldOffset(User.class.getDeclaredField("score"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final User user = new User("1", "A", 0);
+    int value;
+
+    @Benchmark
+    public int unsafeCasIncrement() {
+        int v;
+        do {
+            v = UNSAFE.getIntVolatile(user, SCORE_OFFSET);
+        } while (!UNSAFE.compareAndSwapInt(user, SCORE_OFFSET, v, v + 1));
+        return v;
+    }
+
+    @Benchmark
+    public int updaterCasIncrement() {
+        int v;
+        do {
+            v = UPDATER.get(user);
+        } while (!UPDATER.compareAndSet(user, v, v + 1));
+        return v;
+    }
+
+    @Benchmark
+    public int fieldHandleCasIncrement() {
+        int v;
+        do {
+            v = SCORE.get(user);
+        } while (!SCORE.compareAndSet(user, v, v + 1));
+        return v;
+    }
+
+    @Benchmark
+    public int varHandleCasIncrement() {
+        int v;
+        do {
+            v = (int) SCORE_HANDLE.getVolatile(user);
+        } while (!SCORE_HANDLE.compareAndSet(user, v, v + 1));
+        return v;
+    }
+
+    // no ordering at all, for fields only one thread writes but others may CAS
+    @Benchmark
+    public int fieldHandleWeakCasPlainIncrement() {
+        int v;
+        do {
+            v = SCORE.getPlain(user);
+        } while (!SCORE.weakCompareAndSetPlain(user, v, v + 1));
+        return v;
+    }
+
+    @Benchmark
+    public int updaterGet() {
+        return UPDATER.get(user);
+    }
+
+    @Benchmark
+    public int fieldHandleGet() {
+        return SCORE.get(user);
+    }
+
+    @Benchmark
+    public int fieldHandleGetAcquire() {
+        return SCORE.getAcquire(user);
+    }
+
+    @Benchmark
+    public int fieldHandleGetOpaque() {
+        return SCORE.getOpaque(user);
+    }
+
+    @Benchmark
+    public void updaterSet() {
+        UPDATER.set(user, ++value);
+    }
+
+    @Benchmark
+    public void updaterLazySet() {
+        UPDATER.lazySet(user, ++value);
+    }
+
+    @Benchmark
+    public void fieldHandleSet() {
+        SCORE.set(user, ++value);
+    }
+
+    @Benchmark
+    public void fieldHandleSetRelease() {
+        SCORE.setRelease(user, ++value);
+    }
+
+    @Benchmark
+    public void fieldHandleSetOpaque() {
+        SCORE.setOpaque(user, ++value);
+    }
+}
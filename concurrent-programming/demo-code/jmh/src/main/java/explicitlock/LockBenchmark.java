@@ -0,0 +1,73 @@
+package explicitlock;
+
+import aqs.Mutex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// every mutual exclusion lock in demo-code around the same critical section,
+// work is the Blackhole.consumeCPU tokens spent inside it, run with -t to vary the contention
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockBenchmark {
+    @Param({"synchronized", "ReentrantLock", "ReentrantLockFair", "Mutex",
+        "SpinLock", "ReentrantSpinLock", "TicketSpinLock", "ClhSpinLock", "McsSpinLock"})
+    public String lockType;
+
+    @Param({"0", "100"})
+    public int work;
+
+    final Object monitor = new Object();
+    Lock lock;
+    long value;
+
+    @Setup
+    public void setUp() {
+        switch (lockType) {
+            case "synchronized": lock = null; break;
+            case "ReentrantLock": lock = new ReentrantLock(); break;
+            case "ReentrantLockFair": lock = new ReentrantLock(true); break;
+            case "Mutex": lock = new Mutex(); break;
+            case "SpinLock": lock = new SpinLock(); break;
+            case "ReentrantSpinLock": lock = new ReentrantSpinLock(); break;
+            case "TicketSpinLock": lock = new TicketSpinLock(); break;
+            case "ClhSpinLock": lock = new ClhSpinLock(); break;
+            case "McsSpinLock": lock = new McsSpinLock(); break;
+            default: throw new IllegalArgumentException(lockType);
+        }
+    }
+
+    @Benchmark
+    public long lockUnlock() {
+        if (lock == null) {
+            synchronized (monitor) {
+                Blackhole.consumeCPU(work);
+                return ++value;
+            }
+        }
+        lock.lock();
+        try {
+            Blackhole.consumeCPU(work);
+            return ++value;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package explicitlock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+// ReadWriteLockDemo's guarded map, each operation is a write with probability writePercent.
+// StampedLockOptimistic reads without locking and falls back to the read lock when a write got in.
+// puts only replace values of existing keys, so an optimistic read never sees a resize.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadWriteLockBenchmark {
+    static final int KEYS = 1024;
+
+    @Param({"ReentrantReadWriteLock", "StampedLock", "StampedLockOptimistic",
+        "BravoReadWriteLock", "StripedReadWriteLock"})
+    public String lockType;
+
+    @Param({"0", "1", "10", "50"})
+    public int writePercent;
+
+    final Map<Integer, String> map = new HashMap<>();
+    final String[] values = new String[KEYS];
+    ReadWriteLock lock;
+    StampedLock stampedLock;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < KEYS; i++) {
+            values[i] = String.valueOf(i);
+            map.put(i, values[i]);
+        }
+        switch (lockType) {
+            case "ReentrantReadWriteLock": lock = new ReentrantReadWriteLock(); break;
+            case "StampedLock": lock = new StampedLock().asReadWriteLock(); break;
+            case "StampedLockOptimistic": stampedLock = new StampedLock(); break;
+            case "BravoReadWriteLock": lock = new BravoReadWriteLock(); break;
+            case "StripedReadWriteLock": lock = new StripedReadWriteLock(); break;
+            default: throw new IllegalArgumentException(lockType);
+        }
+    }
+
+    @Benchmark
+    public String access() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(KEYS);
+        if (random.nextInt(100) < writePercent) {
+            return write(key);
+        }
+        return stampedLock != null ? optimisticRead(key) : read(key);
+    }
+
+    String read(int key) {
+        lock.readLock().lock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    String optimisticRead(int key) {
+        long stamp = stampedLock.tryOptimisticRead();
+        String value = map.get(key);
+        if (stampedLock.validate(stamp)) {
+            return value;
+        }
+        stamp = stampedLock.readLock();
+        try {
+            return map.get(key);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    String write(int key) {
+        if (stampedLock != null) {
+            long stamp = stampedLock.writeLock();
+            try {
+                return map.put(key, values[key]);
+            } finally {
+                stampedLock.unlockWrite(stamp);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            return map.put(key, values[key]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
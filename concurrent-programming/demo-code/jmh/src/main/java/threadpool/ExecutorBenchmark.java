@@ -0,0 +1,116 @@
+package threadpool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// one op submits the 10,000 tiny tasks of AtomicityDemo (a synchronized add) or
+// LockHappensBeforeDemo (value++ under a ReentrantLock) and waits for all of them.
+// fixed is newFixedThreadPool, what AtomicityDemo uses; batched submits through
+// WorkStealingExecutor.batch(64)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBenchmark {
+    static final int TASKS = 10000;
+    static final int BATCH_SIZE = 64;
+
+    @Param({"fixed", "workStealing", "batched"})
+    public String executorType;
+
+    @Param({"synchronized", "lock"})
+    public String workload;
+
+    @Param({"10"})
+    public int threads;
+
+    ExecutorService executor;
+    Runnable work;
+    final Lock lock = new ReentrantLock();
+    int value;
+
+    @Setup
+    public void setUp() {
+        switch (executorType) {
+            case "fixed":
+                executor = Executors.newFixedThreadPool(threads);
+                break;
+            case "workStealing":
+            case "batched":
+                executor = new WorkStealingExecutor(threads);
+                break;
+            default:
+                throw new IllegalArgumentException(executorType);
+        }
+        switch (workload) {
+            case "synchronized":
+                work = this::synchronizedAdd;
+                break;
+            case "lock":
+                work = this::lockedIncrement;
+                break;
+            default:
+                throw new IllegalArgumentException(workload);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    synchronized void synchronizedAdd() {
+        value = value + 1;
+    }
+
+    void lockedIncrement() {
+        lock.lock();
+        try {
+            value++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    public int submitAndWait() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        Runnable task = () -> {
+            work.run();
+            latch.countDown();
+        };
+        if (executor instanceof WorkStealingExecutor && executorType.equals("batched")) {
+            try (WorkStealingExecutor.Batch batch = ((WorkStealingExecutor) executor).batch(BATCH_SIZE)) {
+                for (int i = 0; i < TASKS; i++) {
+                    batch.execute(task);
+                }
+            }
+        } else {
+            for (int i = 0; i < TASKS; i++) {
+                executor.execute(task);
+            }
+        }
+        latch.await();
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package threadpool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// producers offer and consumers poll without blocking, as a ThreadPoolExecutor's submitters
+// and busy workers do; a failed offer or an empty poll counts as an op too.
+// run with -tg to change the producer/consumer split, e.g. -tg 4,4
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+    static final Integer TASK = 42;
+
+    @Param({"mpmc", "linked", "array"})
+    public String queueType;
+
+    @Param({"1024"})
+    public int capacity;
+
+    BlockingQueue<Integer> queue;
+
+    @Setup
+    public void setUp() {
+        switch (queueType) {
+            case "mpmc":
+                queue = new MpmcArrayBlockingQueue<>(capacity);
+                break;
+            case "linked":
+                queue = new LinkedBlockingQueue<>(capacity);
+                break;
+            case "array":
+                queue = new ArrayBlockingQueue<>(capacity);
+                break;
+            default:
+                throw new IllegalArgumentException(queueType);
+        }
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(2)
+    public boolean offer() {
+        return queue.offer(TASK);
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(2)
+    public Integer poll() {
+        return queue.poll();
+    }
+}
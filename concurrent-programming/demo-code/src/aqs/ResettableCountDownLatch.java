@@ -0,0 +1,97 @@
+package aqs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedLongSynchronizer;
+
+// a CountDownLatch that can be armed again with reset().
+// the state keeps the generation in the high 32 bits and the count in the low 32 bits,
+// an awaiting thread passes the generation it started in, so a reset that races
+// with the wakeup cannot put it back to sleep on the next round.
+// reset() releases the threads still waiting on the previous round.
+public class ResettableCountDownLatch {
+    static final long COUNT_MASK = 0xFFFFFFFFL;
+    static final long RESET = -1L;
+
+    private static final class Sync extends AbstractQueuedLongSynchronizer {
+        private static final long serialVersionUID = -1314084831732086603L;
+
+        final int initialCount;
+
+        Sync(int count) {
+            this.initialCount = count;
+            setState(count);
+        }
+
+        int getCount() {
+            return (int) (getState() & COUNT_MASK);
+        }
+
+        long generation() {
+            return getState() >>> 32;
+        }
+
+        @Override
+        protected long tryAcquireShared(long generation) {
+            long s = getState();
+            return (s >>> 32) != generation || (s & COUNT_MASK) == 0 ? 1 : -1;
+        }
+
+        @Override
+        protected boolean tryReleaseShared(long arg) {
+            for (;;) {
+                long s = getState();
+                if (arg == RESET) {
+                    long next = (((s >>> 32) + 1) << 32) | initialCount;
+                    if (compareAndSetState(s, next)) {
+                        return true;
+                    }
+                    continue;
+                }
+                if ((s & COUNT_MASK) == 0) {
+                    return false;
+                }
+                if (compareAndSetState(s, s - 1)) {
+                    return ((s - 1) & COUNT_MASK) == 0;
+                }
+            }
+        }
+    }
+
+    private final Sync sync;
+
+    public ResettableCountDownLatch(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count < 0");
+        }
+        this.sync = new Sync(count);
+    }
+
+    public void await() throws InterruptedException {
+        sync.acquireSharedInterruptibly(sync.generation());
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return sync.tryAcquireSharedNanos(sync.generation(), unit.toNanos(timeout));
+    }
+
+    public void countDown() {
+        sync.releaseShared(1);
+    }
+
+    public long getCount() {
+        return sync.getCount();
+    }
+
+    public void reset() {
+        sync.releaseShared(RESET);
+    }
+
+    public long getGeneration() {
+        return sync.generation();
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[Count = " + sync.getCount() + ", Generation = " + sync.generation() + "]";
+    }
+}
@@ -0,0 +1,134 @@
+package aqs;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// each synchronizer in this package against its JDK counterpart:
+// Mutex vs ReentrantLock and synchronized on a short critical section,
+// WeightedSemaphore vs Semaphore on random weighted acquires,
+// one ResettableCountDownLatch reused per round vs a new CountDownLatch per round
+public class SynchronizerComparisonDemo {
+    static final int THREADS = 8;
+    static final int OPERATIONS = 1_000_000;
+    static final int ROUNDS = 20_000;
+
+    static long value = 0;
+
+    interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : THREADS;
+        System.out.println(threads + " threads");
+
+        Object monitor = new Object();
+        time("synchronized", threads, OPERATIONS, t -> {
+            synchronized (monitor) {
+                value++;
+            }
+        });
+        time("ReentrantLock", threads, OPERATIONS, withLock(new ReentrantLock()));
+        time("Mutex", threads, OPERATIONS, withLock(new Mutex()));
+
+        Semaphore semaphore = new Semaphore(64);
+        time("Semaphore", threads, OPERATIONS, t -> {
+            int permits = ThreadLocalRandom.current().nextInt(8) + 1;
+            semaphore.acquire(permits);
+            semaphore.release(permits);
+        });
+        WeightedSemaphore weighted = new WeightedSemaphore(64);
+        time("WeightedSemaphore", threads, OPERATIONS, t -> {
+            long permits = ThreadLocalRandom.current().nextInt(8) + 1;
+            weighted.acquire(permits);
+            weighted.release(permits);
+        });
+        // beyond what Semaphore can count
+        WeightedSemaphore bytes = new WeightedSemaphore(16L << 30);
+        bytes.acquire(12L << 30);
+        System.out.println("WeightedSemaphore: " + bytes.availablePermits() + " bytes left of 16GB");
+        bytes.release(12L << 30);
+
+        latches(threads);
+    }
+
+    static Task withLock(Lock lock) {
+        return t -> {
+            lock.lock();
+            try {
+                value++;
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    static void time(String name, int threads, int operations, Task task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        int perThread = operations / threads;
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    for (int n = 0; n < perThread; n++) {
+                        task.run(id);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.printf("%-20s %,14.0f ops/s%n", name, (double) perThread * threads * 1e9 / elapsed);
+    }
+
+    // a coordinator waits for every worker to count down, then starts the next round
+    static void latches(int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        long begin = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            CountDownLatch latch = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                pool.execute(latch::countDown);
+            }
+            latch.await();
+        }
+        report("CountDownLatch", begin);
+
+        ResettableCountDownLatch reusable = new ResettableCountDownLatch(threads);
+        begin = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int i = 0; i < threads; i++) {
+                pool.execute(reusable::countDown);
+            }
+            reusable.await();
+            reusable.reset();
+        }
+        report("ResettableLatch", begin);
+
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    static void report(String name, long begin) {
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%-20s %,14.0f rounds/s%n", name, ROUNDS * 1e9 / elapsed);
+    }
+}
@@ -0,0 +1,179 @@
+package aqs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedLongSynchronizer;
+
+// a Semaphore with 64-bit permits, for weights such as bytes in flight
+// that do not fit the int state of java.util.concurrent.Semaphore.
+// a waiter asking for many permits stays at the head of the queue and holds back
+// the smaller requests queued behind it. only the fair version also holds back
+// newcomers, so only there a large acquire is not starved by small ones: in the
+// non-fair version a newcomer barges in whenever enough permits are free, and a
+// steady stream of small acquires can keep a large queued one waiting forever.
+public class WeightedSemaphore {
+    abstract static class Sync extends AbstractQueuedLongSynchronizer {
+        private static final long serialVersionUID = 3298339934685263878L;
+
+        Sync(long permits) {
+            setState(permits);
+        }
+
+        long getPermits() {
+            return getState();
+        }
+
+        long nonfairTryAcquireShared(long acquires) {
+            for (;;) {
+                long available = getState();
+                long remaining = available - acquires;
+                if (remaining < 0 || compareAndSetState(available, remaining)) {
+                    return remaining;
+                }
+            }
+        }
+
+        @Override
+        protected final boolean tryReleaseShared(long releases) {
+            for (;;) {
+                long current = getState();
+                long next = current + releases;
+                if (next < current) {
+                    throw new Error("Maximum permit count exceeded");
+                }
+                if (compareAndSetState(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        final void reducePermits(long reductions) {
+            for (;;) {
+                long current = getState();
+                long next = current - reductions;
+                if (next > current) {
+                    throw new Error("Permit count underflow");
+                }
+                if (compareAndSetState(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        final long drainPermits() {
+            for (;;) {
+                long current = getState();
+                if (current == 0 || compareAndSetState(current, 0)) {
+                    return current;
+                }
+            }
+        }
+    }
+
+    static final class NonfairSync extends Sync {
+        private static final long serialVersionUID = 8824670736239490036L;
+
+        NonfairSync(long permits) {
+            super(permits);
+        }
+
+        @Override
+        protected long tryAcquireShared(long acquires) {
+            return nonfairTryAcquireShared(acquires);
+        }
+    }
+
+    static final class FairSync extends Sync {
+        private static final long serialVersionUID = 550417551522166930L;
+
+        FairSync(long permits) {
+            super(permits);
+        }
+
+        @Override
+        protected long tryAcquireShared(long acquires) {
+            if (hasQueuedPredecessors()) {
+                return -1;
+            }
+            return nonfairTryAcquireShared(acquires);
+        }
+    }
+
+    private final Sync sync;
+
+    public WeightedSemaphore(long permits) {
+        this(permits, false);
+    }
+
+    public WeightedSemaphore(long permits, boolean fair) {
+        sync = fair ? new FairSync(permits) : new NonfairSync(permits);
+    }
+
+    public void acquire() throws InterruptedException {
+        sync.acquireSharedInterruptibly(1);
+    }
+
+    public void acquire(long permits) throws InterruptedException {
+        checkPermits(permits);
+        sync.acquireSharedInterruptibly(permits);
+    }
+
+    public void acquireUninterruptibly(long permits) {
+        checkPermits(permits);
+        sync.acquireShared(permits);
+    }
+
+    public boolean tryAcquire(long permits) {
+        checkPermits(permits);
+        return sync.nonfairTryAcquireShared(permits) >= 0;
+    }
+
+    public boolean tryAcquire(long permits, long timeout, TimeUnit unit) throws InterruptedException {
+        checkPermits(permits);
+        return sync.tryAcquireSharedNanos(permits, unit.toNanos(timeout));
+    }
+
+    public void release() {
+        sync.releaseShared(1);
+    }
+
+    public void release(long permits) {
+        checkPermits(permits);
+        sync.releaseShared(permits);
+    }
+
+    public long availablePermits() {
+        return sync.getPermits();
+    }
+
+    public long drainPermits() {
+        return sync.drainPermits();
+    }
+
+    protected void reducePermits(long reduction) {
+        checkPermits(reduction);
+        sync.reducePermits(reduction);
+    }
+
+    public boolean isFair() {
+        return sync instanceof FairSync;
+    }
+
+    public final boolean hasQueuedThreads() {
+        return sync.hasQueuedThreads();
+    }
+
+    public final int getQueueLength() {
+        return sync.getQueueLength();
+    }
+
+    private static void checkPermits(long permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("permits < 0");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[Permits = " + sync.getPermits() + "]";
+    }
+}
@@ -1,7 +1,46 @@
 package atomicity;
 
+import metrics.AdaptiveDoubleAccumulator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.function.DoubleConsumer;
 
+// the largest of many random samples, tracked by a DoubleAccumulator
+// and by an AdaptiveDoubleAccumulator
 public class AccumlatorDemo {
-    private DoubleAccumulator accumulator;
+    private static final int TASKS = 10;
+    private static final int TURNS = 10000000;
+
+    public static void main(String[] args) throws InterruptedException {
+        DoubleAccumulator accumulator = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        run("DoubleAccumulator", accumulator::accumulate);
+        System.out.println("max: " + accumulator.get());
+
+        AdaptiveDoubleAccumulator adaptive = AdaptiveDoubleAccumulator.max();
+        run("AdaptiveDoubleAccumulator", adaptive::accumulate);
+        System.out.println("max: " + adaptive.get() + ", cells: " + adaptive.cellCount());
+    }
+
+    private static void run(String name, DoubleConsumer accumulate) throws InterruptedException {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < TASKS; i++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < TURNS; j++) {
+                    accumulate.accept(random.nextDouble());
+                }
+                latch.countDown();
+            });
+        }
+        latch.await();
+        pool.shutdown();
+        float time = (System.currentTimeMillis() - start) / 1000F;
+        System.out.println(name + " execution time: " + time);
+    }
 }
@@ -1,73 +1,65 @@
 package atomicity;
 
-import sun.misc.Unsafe;
-
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandles;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
 
 public class CASPlusPlusDemo {
     private static final int THREAD_NUM = 10;
-    private static final Unsafe unsafe = getUnsafe();
+    private static final IntFieldHandle<CASPlusPlusDemo> ATTR =
+        IntFieldHandle.newUpdater(MethodHandles.lookup(), CASPlusPlusDemo.class, "attr");
+    private static final IntUnaryOperator PLUS_ONE = v -> v + 1;
     private volatile int attr = 0;
-    private static long attrOffset;
-    private static final AtomicLong failure = new AtomicLong(0);
-    static {
-        try {
-            attrOffset = unsafe.objectFieldOffset(CASPlusPlusDemo.class.getDeclaredField("attr"));
-            System.out.println("attribute offset:" + attrOffset);
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
-            throw new Error(e);
-        }
-    }
+    // per-thread counts, a shared failure counter would add contention of its own
+    private static final RetryHistogram failure = new RetryHistogram();
+    private static final ContendedIntUpdater<CASPlusPlusDemo> updater = new ContendedIntUpdater<>(ATTR);
 
-    public final boolean unSafeCompareAndSet(int oldValue, int newValue) {
-        return unsafe.compareAndSwapInt(this, attrOffset, oldValue, newValue);
+    public final boolean compareAndSetAttr(int oldValue, int newValue) {
+        return ATTR.compareAndSet(this, oldValue, newValue);
     }
 
     public void selfPlus() {
+        int retries = 0;
         int oldValue = attr;
-        int i = 0;
-        do {
-            if (i++ > 1) {
-                failure.incrementAndGet();
-            }
-        } while (!unSafeCompareAndSet(oldValue, oldValue + 1));
+        while (!compareAndSetAttr(oldValue, oldValue + 1)) {
+            // re-read on every attempt, retrying with a stale value can never succeed
+            retries++;
+            oldValue = attr;
+        }
+        failure.record(retries);
+    }
+
+    // the same loop with backoff and a lock once it keeps failing
+    public void selfPlusWithBackoff() {
+        updater.updateAndGet(this, PLUS_ONE);
     }
 
     public static void main(String[] args) throws InterruptedException {
-        final CASPlusPlusDemo casPlusPlusDemo = new CASPlusPlusDemo();
-        CountDownLatch latch = new CountDownLatch(THREAD_NUM);
         ExecutorService pool = Executors.newCachedThreadPool();
+        CASPlusPlusDemo plain = new CASPlusPlusDemo();
+        run(pool, plain::selfPlus);
+        System.out.println("result:" + plain.attr);
+        System.out.println("failure:" + failure.snapshot());
+
+        CASPlusPlusDemo backoff = new CASPlusPlusDemo();
+        run(pool, backoff::selfPlusWithBackoff);
+        System.out.println("result with backoff:" + backoff.attr);
+        System.out.println("failure with backoff:" + updater.retries());
+        pool.shutdown();
+    }
+
+    private static void run(ExecutorService pool, Runnable plusOne) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(THREAD_NUM);
         for (int i = 0; i < THREAD_NUM; i++) {
             pool.submit(() -> {
                 for (int j = 0; j < 1000; j++) {
-                    casPlusPlusDemo.selfPlus();
+                    plusOne.run();
                 }
                 latch.countDown();
             });
         }
         latch.await();
-        System.out.println("result:" + casPlusPlusDemo.attr);
-        System.out.println("failure:" + CASPlusPlusDemo.failure.get());
-    }
-
-    public static Unsafe getUnsafe()  {
-        Field theUnsafe = null;
-        try {
-            theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
-        }
-        theUnsafe.setAccessible(true);
-        try {
-            return (Unsafe) theUnsafe.get(null);
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
-        }
-        return null;
     }
 }
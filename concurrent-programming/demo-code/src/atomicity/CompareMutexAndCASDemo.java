@@ -1,24 +1,40 @@
 package atomicity;
 
+import threadpool.ExecutorMode;
+import threadpool.PinningDetector;
+
+import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Thread.sleep;
 
+// shows the two agree on the result, the timings include the sleeps and thread start-up,
+// jmh/CounterBenchmark measures the difference.
+// the first argument picks the executor, e.g. VIRTUAL; MutexDemo sleeps inside synchronized,
+// on virtual threads that pins the carrier and the detector reports it
 public class CompareMutexAndCASDemo {
     public static void main(String[] args) throws InterruptedException {
-        System.out.println("MutexDemo");
-        MutexDemo.demo();
-        System.out.println("Atomic");
-        AtomicDemo.demo();
+        ExecutorMode mode = ExecutorMode.fromArgs(args, 0);
+        System.out.println("MutexDemo on " + mode);
+        if (mode == ExecutorMode.VIRTUAL) {
+            // only virtual threads pin, the other modes need no recording
+            try (PinningDetector pinning = new PinningDetector(Duration.ofMillis(5))) {
+                MutexDemo.demo(mode);
+                System.out.println(pinning.report());
+            }
+        } else {
+            MutexDemo.demo(mode);
+        }
+        System.out.println("Atomic on " + mode);
+        AtomicDemo.demo(mode);
     }
 
     private static class MutexDemo{
         public int value = 0;
-        public static void demo() throws InterruptedException {
-            final ExecutorService pool = Executors.newCachedThreadPool();
+        public static void demo(ExecutorMode mode) throws InterruptedException {
+            final ExecutorService pool = mode.newExecutor();
             final CountDownLatch latchW = new CountDownLatch(10000);
             final CountDownLatch latchR = new CountDownLatch(10);
             MutexDemo demo = new MutexDemo();
@@ -61,8 +77,8 @@ public class CompareMutexAndCASDemo {
     }
     private static class AtomicDemo{
         final AtomicInteger atomicInteger = new AtomicInteger(0);
-        public static void demo() throws InterruptedException {
-            final ExecutorService pool = Executors.newCachedThreadPool();
+        public static void demo(ExecutorMode mode) throws InterruptedException {
+            final ExecutorService pool = mode.newExecutor();
             final CountDownLatch latchW = new CountDownLatch(10000);
             final CountDownLatch latchR = new CountDownLatch(10);
             AtomicDemo demo = new AtomicDemo();
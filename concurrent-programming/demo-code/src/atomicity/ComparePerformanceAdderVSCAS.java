@@ -1,11 +1,14 @@
 package atomicity;
 
+import metrics.AdaptiveCounter;
+
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 
+// a rough wall-clock comparison, jmh/CounterBenchmark has the warmed-up numbers per thread count
 public class ComparePerformanceAdderVSCAS {
     public static void main(String[] args) {
         System.out.println("AtomicLong:");
@@ -13,6 +16,9 @@ public class ComparePerformanceAdderVSCAS {
         System.out.println();
         System.out.println("LongAdder:");
         TestLongAdderPerformance.test();
+        System.out.println();
+        System.out.println("AdaptiveCounter:");
+        TestAdaptiveCounterPerformance.test();
     }
 }
 
@@ -74,3 +80,32 @@ class TestLongAdderPerformance {
         System.out.println("result: " + x.longValue());
     }
 }
+
+class TestAdaptiveCounterPerformance {
+    public static void test() {
+        final int TURNS = 100000000;
+        final int TASKS = 10;
+
+        ExecutorService pool = Executors.newCachedThreadPool();
+        AdaptiveCounter x = new AdaptiveCounter();
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < TASKS; i++) {
+            pool.submit(() -> {
+                for (int j = 0; j < TURNS; j++) {
+                    x.add(1);
+                }
+                latch.countDown();
+            });
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        pool.shutdown();
+        float time = (System.currentTimeMillis() - start) / 1000F;
+        System.out.println("execution time: " + time);
+        System.out.println("result: " + x.sum() + ", cells: " + x.cellCount());
+    }
+}
@@ -0,0 +1,108 @@
+package atomicity;
+
+import explicitlock.Backoff;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+
+// a CAS update loop for an int field that holds up under contention:
+// every attempt re-reads the field, a failed CAS backs off for a random number of
+// spins below a doubling limit, and after maxRetries failures the thread stops
+// competing and queues on a lock. while someone holds the lock, new arrivals and
+// retrying threads queue behind it too, so under heavy contention the updates
+// run one at a time and stop invalidating each other's cache line.
+// the function may be applied more than once and must be free of side effects.
+public final class ContendedIntUpdater<T> {
+    static final int DEFAULT_MAX_RETRIES = 1 << 4;
+    static final int MIN_BACKOFF_SPINS = 1 << 2;
+    static final int MAX_BACKOFF_SPINS = 1 << 10;
+    // spinning cannot make progress when the thread we wait for needs our cpu
+    static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+
+    final IntFieldHandle<T> field;
+    final int maxRetries;
+    final int minBackoffSpins;
+    final int maxBackoffSpins;
+    final ReentrantLock fallback = new ReentrantLock();
+    final RetryHistogram retries = new RetryHistogram();
+    // the contended path runs often under load, reuse one backoff per thread
+    final ThreadLocal<Backoff> backoffs;
+
+    public ContendedIntUpdater(IntFieldHandle<T> field) {
+        this(field, DEFAULT_MAX_RETRIES, MIN_BACKOFF_SPINS, MAX_BACKOFF_SPINS);
+    }
+
+    public ContendedIntUpdater(IntFieldHandle<T> field, int maxRetries, int minBackoffSpins, int maxBackoffSpins) {
+        if (maxRetries < 0 || minBackoffSpins <= 0 || maxBackoffSpins < minBackoffSpins) {
+            throw new IllegalArgumentException();
+        }
+        this.field = field;
+        this.maxRetries = maxRetries;
+        this.minBackoffSpins = minBackoffSpins;
+        this.maxBackoffSpins = maxBackoffSpins;
+        this.backoffs = ThreadLocal.withInitial(() -> new Backoff(minBackoffSpins, maxBackoffSpins));
+    }
+
+    public int getAndUpdate(T obj, IntUnaryOperator updateFunction) {
+        return update(obj, updateFunction, false);
+    }
+
+    public int updateAndGet(T obj, IntUnaryOperator updateFunction) {
+        return update(obj, updateFunction, true);
+    }
+
+    private int update(T obj, IntUnaryOperator updateFunction, boolean returnNext) {
+        if (fallback.isLocked()) {
+            return updateLocked(obj, updateFunction, returnNext, 0);
+        }
+        int prev = field.get(obj);
+        int next = updateFunction.applyAsInt(prev);
+        if (field.compareAndSet(obj, prev, next)) {
+            retries.record(0);
+            return returnNext ? next : prev;
+        }
+        return updateSlow(obj, updateFunction, returnNext);
+    }
+
+    private int updateSlow(T obj, IntUnaryOperator updateFunction, boolean returnNext) {
+        Backoff backoff = backoffs.get();
+        backoff.reset();
+        int failures = 1;
+        for (; failures <= maxRetries && !fallback.isLocked(); failures++) {
+            if (MULTIPROCESSOR) {
+                backoff.backoff();
+            } else {
+                Thread.yield();
+            }
+            int prev = field.get(obj);
+            int next = updateFunction.applyAsInt(prev);
+            if (field.compareAndSet(obj, prev, next)) {
+                retries.record(failures);
+                return returnNext ? next : prev;
+            }
+        }
+        return updateLocked(obj, updateFunction, returnNext, failures);
+    }
+
+    private int updateLocked(T obj, IntUnaryOperator updateFunction, boolean returnNext, int failures) {
+        fallback.lock();
+        try {
+            // only threads that have not seen the lock held yet still race with us
+            for (; ; failures++) {
+                int prev = field.get(obj);
+                int next = updateFunction.applyAsInt(prev);
+                if (field.compareAndSet(obj, prev, next)) {
+                    retries.record(failures, true);
+                    return returnNext ? next : prev;
+                }
+                Thread.onSpinWait();
+            }
+        } finally {
+            fallback.unlock();
+        }
+    }
+
+    public RetryHistogram.Snapshot retries() {
+        return retries.snapshot();
+    }
+}
@@ -0,0 +1,165 @@
+package atomicity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+// IntFieldHandle for the elements of int arrays, what AtomicIntegerArray does
+// on an array it owns, here on any int[] the caller passes in.
+// indexes are bounds checked like plain array accesses.
+public final class IntArrayHandle {
+    private static final IntArrayHandle INSTANCE = new IntArrayHandle(MethodHandles.arrayElementVarHandle(int[].class));
+
+    private final VarHandle handle;
+
+    private IntArrayHandle(VarHandle handle) {
+        this.handle = handle;
+    }
+
+    public static IntArrayHandle newUpdater() {
+        return INSTANCE;
+    }
+
+    public VarHandle handle() {
+        return handle;
+    }
+
+    public int get(int[] array, int i) {
+        return (int) handle.getVolatile(array, i);
+    }
+
+    public void set(int[] array, int i, int newValue) {
+        handle.setVolatile(array, i, newValue);
+    }
+
+    public int getPlain(int[] array, int i) {
+        return (int) handle.get(array, i);
+    }
+
+    public void setPlain(int[] array, int i, int newValue) {
+        handle.set(array, i, newValue);
+    }
+
+    public int getOpaque(int[] array, int i) {
+        return (int) handle.getOpaque(array, i);
+    }
+
+    public void setOpaque(int[] array, int i, int newValue) {
+        handle.setOpaque(array, i, newValue);
+    }
+
+    public int getAcquire(int[] array, int i) {
+        return (int) handle.getAcquire(array, i);
+    }
+
+    public void setRelease(int[] array, int i, int newValue) {
+        handle.setRelease(array, i, newValue);
+    }
+
+    // AtomicIntegerArray's name for setRelease
+    public void lazySet(int[] array, int i, int newValue) {
+        handle.setRelease(array, i, newValue);
+    }
+
+    public boolean compareAndSet(int[] array, int i, int expect, int update) {
+        return handle.compareAndSet(array, i, expect, update);
+    }
+
+    public int compareAndExchange(int[] array, int i, int expect, int update) {
+        return (int) handle.compareAndExchange(array, i, expect, update);
+    }
+
+    // the weak forms may fail spuriously, use them in retry loops
+    public boolean weakCompareAndSet(int[] array, int i, int expect, int update) {
+        return handle.weakCompareAndSet(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetPlain(int[] array, int i, int expect, int update) {
+        return handle.weakCompareAndSetPlain(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetAcquire(int[] array, int i, int expect, int update) {
+        return handle.weakCompareAndSetAcquire(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetRelease(int[] array, int i, int expect, int update) {
+        return handle.weakCompareAndSetRelease(array, i, expect, update);
+    }
+
+    public int getAndSet(int[] array, int i, int newValue) {
+        return (int) handle.getAndSet(array, i, newValue);
+    }
+
+    public int getAndAdd(int[] array, int i, int delta) {
+        return (int) handle.getAndAdd(array, i, delta);
+    }
+
+    public int addAndGet(int[] array, int i, int delta) {
+        return (int) handle.getAndAdd(array, i, delta) + delta;
+    }
+
+    public int getAndIncrement(int[] array, int i) {
+        return getAndAdd(array, i, 1);
+    }
+
+    public int incrementAndGet(int[] array, int i) {
+        return addAndGet(array, i, 1);
+    }
+
+    public int getAndDecrement(int[] array, int i) {
+        return getAndAdd(array, i, -1);
+    }
+
+    public int decrementAndGet(int[] array, int i) {
+        return addAndGet(array, i, -1);
+    }
+
+    public int getAndUpdate(int[] array, int i, IntUnaryOperator updateFunction) {
+        int prev = get(array, i);
+        for (;;) {
+            int next = updateFunction.applyAsInt(prev);
+            int witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public int updateAndGet(int[] array, int i, IntUnaryOperator updateFunction) {
+        int prev = get(array, i);
+        for (;;) {
+            int next = updateFunction.applyAsInt(prev);
+            int witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+
+    public int getAndAccumulate(int[] array, int i, int x, IntBinaryOperator accumulatorFunction) {
+        int prev = get(array, i);
+        for (;;) {
+            int next = accumulatorFunction.applyAsInt(prev, x);
+            int witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public int accumulateAndGet(int[] array, int i, int x, IntBinaryOperator accumulatorFunction) {
+        int prev = get(array, i);
+        for (;;) {
+            int next = accumulatorFunction.applyAsInt(prev, x);
+            int witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package atomicity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+// AtomicIntegerFieldUpdater on a VarHandle: no Unsafe and no hand-computed offsets,
+// and besides the volatile operations the weaker access modes of the JDK 9 memory model:
+// plain, opaque (coherent, nothing ordered around it), acquire/release (one-way ordering).
+// keep instances in static final fields; on the hottest paths a static final VarHandle,
+// from handle(), is what the JIT folds best.
+// the field must be an int, it does not have to be volatile, the access mode decides.
+public final class IntFieldHandle<T> {
+    private final VarHandle handle;
+
+    private IntFieldHandle(VarHandle handle) {
+        this.handle = handle;
+    }
+
+    // the lookup must be able to access the field, usually MethodHandles.lookup() in the declaring class
+    public static <T> IntFieldHandle<T> newUpdater(MethodHandles.Lookup lookup, Class<T> type, String fieldName) {
+        try {
+            return new IntFieldHandle<>(lookup.findVarHandle(type, fieldName, int.class));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    // for fields this class can reach through a private lookup, e.g. in the same module
+    public static <T> IntFieldHandle<T> newUpdater(Class<T> type, String fieldName) {
+        try {
+            return newUpdater(MethodHandles.privateLookupIn(type, MethodHandles.lookup()), type, fieldName);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public VarHandle handle() {
+        return handle;
+    }
+
+    public int get(T obj) {
+        return (int) handle.getVolatile(obj);
+    }
+
+    public void set(T obj, int newValue) {
+        handle.setVolatile(obj, newValue);
+    }
+
+    public int getPlain(T obj) {
+        return (int) handle.get(obj);
+    }
+
+    public void setPlain(T obj, int newValue) {
+        handle.set(obj, newValue);
+    }
+
+    public int getOpaque(T obj) {
+        return (int) handle.getOpaque(obj);
+    }
+
+    public void setOpaque(T obj, int newValue) {
+        handle.setOpaque(obj, newValue);
+    }
+
+    public int getAcquire(T obj) {
+        return (int) handle.getAcquire(obj);
+    }
+
+    public void setRelease(T obj, int newValue) {
+        handle.setRelease(obj, newValue);
+    }
+
+    // AtomicIntegerFieldUpdater's name for setRelease
+    public void lazySet(T obj, int newValue) {
+        handle.setRelease(obj, newValue);
+    }
+
+    public boolean compareAndSet(T obj, int expect, int update) {
+        return handle.compareAndSet(obj, expect, update);
+    }
+
+    public int compareAndExchange(T obj, int expect, int update) {
+        return (int) handle.compareAndExchange(obj, expect, update);
+    }
+
+    // the weak forms may fail spuriously, use them in retry loops
+    public boolean weakCompareAndSet(T obj, int expect, int update) {
+        return handle.weakCompareAndSet(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetPlain(T obj, int expect, int update) {
+        return handle.weakCompareAndSetPlain(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetAcquire(T obj, int expect, int update) {
+        return handle.weakCompareAndSetAcquire(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetRelease(T obj, int expect, int update) {
+        return handle.weakCompareAndSetRelease(obj, expect, update);
+    }
+
+    public int getAndSet(T obj, int newValue) {
+        return (int) handle.getAndSet(obj, newValue);
+    }
+
+    public int getAndAdd(T obj, int delta) {
+        return (int) handle.getAndAdd(obj, delta);
+    }
+
+    public int addAndGet(T obj, int delta) {
+        return (int) handle.getAndAdd(obj, delta) + delta;
+    }
+
+    public int getAndIncrement(T obj) {
+        return getAndAdd(obj, 1);
+    }
+
+    public int incrementAndGet(T obj) {
+        return addAndGet(obj, 1);
+    }
+
+    public int getAndDecrement(T obj) {
+        return getAndAdd(obj, -1);
+    }
+
+    public int decrementAndGet(T obj) {
+        return addAndGet(obj, -1);
+    }
+
+    public int getAndUpdate(T obj, IntUnaryOperator updateFunction) {
+        int prev = get(obj);
+        for (;;) {
+            int next = updateFunction.applyAsInt(prev);
+            int witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public int updateAndGet(T obj, IntUnaryOperator updateFunction) {
+        int prev = get(obj);
+        for (;;) {
+            int next = updateFunction.applyAsInt(prev);
+            int witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+
+    public int getAndAccumulate(T obj, int x, IntBinaryOperator accumulatorFunction) {
+        int prev = get(obj);
+        for (;;) {
+            int next = accumulatorFunction.applyAsInt(prev, x);
+            int witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public int accumulateAndGet(T obj, int x, IntBinaryOperator accumulatorFunction) {
+        int prev = get(obj);
+        for (;;) {
+            int next = accumulatorFunction.applyAsInt(prev, x);
+            int witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+}
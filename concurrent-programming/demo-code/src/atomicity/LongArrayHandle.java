@@ -0,0 +1,165 @@
+package atomicity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+// LongFieldHandle for the elements of long arrays, what AtomicLongArray does
+// on an array it owns, here on any long[] the caller passes in.
+// indexes are bounds checked like plain array accesses.
+public final class LongArrayHandle {
+    private static final LongArrayHandle INSTANCE = new LongArrayHandle(MethodHandles.arrayElementVarHandle(long[].class));
+
+    private final VarHandle handle;
+
+    private LongArrayHandle(VarHandle handle) {
+        this.handle = handle;
+    }
+
+    public static LongArrayHandle newUpdater() {
+        return INSTANCE;
+    }
+
+    public VarHandle handle() {
+        return handle;
+    }
+
+    public long get(long[] array, int i) {
+        return (long) handle.getVolatile(array, i);
+    }
+
+    public void set(long[] array, int i, long newValue) {
+        handle.setVolatile(array, i, newValue);
+    }
+
+    public long getPlain(long[] array, int i) {
+        return (long) handle.get(array, i);
+    }
+
+    public void setPlain(long[] array, int i, long newValue) {
+        handle.set(array, i, newValue);
+    }
+
+    public long getOpaque(long[] array, int i) {
+        return (long) handle.getOpaque(array, i);
+    }
+
+    public void setOpaque(long[] array, int i, long newValue) {
+        handle.setOpaque(array, i, newValue);
+    }
+
+    public long getAcquire(long[] array, int i) {
+        return (long) handle.getAcquire(array, i);
+    }
+
+    public void setRelease(long[] array, int i, long newValue) {
+        handle.setRelease(array, i, newValue);
+    }
+
+    // AtomicLongArray's name for setRelease
+    public void lazySet(long[] array, int i, long newValue) {
+        handle.setRelease(array, i, newValue);
+    }
+
+    public boolean compareAndSet(long[] array, int i, long expect, long update) {
+        return handle.compareAndSet(array, i, expect, update);
+    }
+
+    public long compareAndExchange(long[] array, int i, long expect, long update) {
+        return (long) handle.compareAndExchange(array, i, expect, update);
+    }
+
+    // the weak forms may fail spuriously, use them in retry loops
+    public boolean weakCompareAndSet(long[] array, int i, long expect, long update) {
+        return handle.weakCompareAndSet(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetPlain(long[] array, int i, long expect, long update) {
+        return handle.weakCompareAndSetPlain(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetAcquire(long[] array, int i, long expect, long update) {
+        return handle.weakCompareAndSetAcquire(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetRelease(long[] array, int i, long expect, long update) {
+        return handle.weakCompareAndSetRelease(array, i, expect, update);
+    }
+
+    public long getAndSet(long[] array, int i, long newValue) {
+        return (long) handle.getAndSet(array, i, newValue);
+    }
+
+    public long getAndAdd(long[] array, int i, long delta) {
+        return (long) handle.getAndAdd(array, i, delta);
+    }
+
+    public long addAndGet(long[] array, int i, long delta) {
+        return (long) handle.getAndAdd(array, i, delta) + delta;
+    }
+
+    public long getAndIncrement(long[] array, int i) {
+        return getAndAdd(array, i, 1);
+    }
+
+    public long incrementAndGet(long[] array, int i) {
+        return addAndGet(array, i, 1);
+    }
+
+    public long getAndDecrement(long[] array, int i) {
+        return getAndAdd(array, i, -1);
+    }
+
+    public long decrementAndGet(long[] array, int i) {
+        return addAndGet(array, i, -1);
+    }
+
+    public long getAndUpdate(long[] array, int i, LongUnaryOperator updateFunction) {
+        long prev = get(array, i);
+        for (;;) {
+            long next = updateFunction.applyAsLong(prev);
+            long witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public long updateAndGet(long[] array, int i, LongUnaryOperator updateFunction) {
+        long prev = get(array, i);
+        for (;;) {
+            long next = updateFunction.applyAsLong(prev);
+            long witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+
+    public long getAndAccumulate(long[] array, int i, long x, LongBinaryOperator accumulatorFunction) {
+        long prev = get(array, i);
+        for (;;) {
+            long next = accumulatorFunction.applyAsLong(prev, x);
+            long witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public long accumulateAndGet(long[] array, int i, long x, LongBinaryOperator accumulatorFunction) {
+        long prev = get(array, i);
+        for (;;) {
+            long next = accumulatorFunction.applyAsLong(prev, x);
+            long witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+}
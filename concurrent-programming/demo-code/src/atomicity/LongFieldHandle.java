@@ -0,0 +1,180 @@
+package atomicity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+// AtomicLongFieldUpdater on a VarHandle: no Unsafe and no hand-computed offsets,
+// and besides the volatile operations the weaker access modes of the JDK 9 memory model:
+// plain, opaque (coherent, nothing ordered around it), acquire/release (one-way ordering).
+// keep instances in static final fields; on the hottest paths a static final VarHandle,
+// from handle(), is what the JIT folds best.
+// the field must be a long, it does not have to be volatile, the access mode decides.
+public final class LongFieldHandle<T> {
+    private final VarHandle handle;
+
+    private LongFieldHandle(VarHandle handle) {
+        this.handle = handle;
+    }
+
+    // the lookup must be able to access the field, usually MethodHandles.lookup() in the declaring class
+    public static <T> LongFieldHandle<T> newUpdater(MethodHandles.Lookup lookup, Class<T> type, String fieldName) {
+        try {
+            return new LongFieldHandle<>(lookup.findVarHandle(type, fieldName, long.class));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    // for fields this class can reach through a private lookup, e.g. in the same module
+    public static <T> LongFieldHandle<T> newUpdater(Class<T> type, String fieldName) {
+        try {
+            return newUpdater(MethodHandles.privateLookupIn(type, MethodHandles.lookup()), type, fieldName);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public VarHandle handle() {
+        return handle;
+    }
+
+    public long get(T obj) {
+        return (long) handle.getVolatile(obj);
+    }
+
+    public void set(T obj, long newValue) {
+        handle.setVolatile(obj, newValue);
+    }
+
+    public long getPlain(T obj) {
+        return (long) handle.get(obj);
+    }
+
+    public void setPlain(T obj, long newValue) {
+        handle.set(obj, newValue);
+    }
+
+    public long getOpaque(T obj) {
+        return (long) handle.getOpaque(obj);
+    }
+
+    public void setOpaque(T obj, long newValue) {
+        handle.setOpaque(obj, newValue);
+    }
+
+    public long getAcquire(T obj) {
+        return (long) handle.getAcquire(obj);
+    }
+
+    public void setRelease(T obj, long newValue) {
+        handle.setRelease(obj, newValue);
+    }
+
+    // AtomicLongFieldUpdater's name for setRelease
+    public void lazySet(T obj, long newValue) {
+        handle.setRelease(obj, newValue);
+    }
+
+    public boolean compareAndSet(T obj, long expect, long update) {
+        return handle.compareAndSet(obj, expect, update);
+    }
+
+    public long compareAndExchange(T obj, long expect, long update) {
+        return (long) handle.compareAndExchange(obj, expect, update);
+    }
+
+    // the weak forms may fail spuriously, use them in retry loops
+    public boolean weakCompareAndSet(T obj, long expect, long update) {
+        return handle.weakCompareAndSet(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetPlain(T obj, long expect, long update) {
+        return handle.weakCompareAndSetPlain(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetAcquire(T obj, long expect, long update) {
+        return handle.weakCompareAndSetAcquire(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetRelease(T obj, long expect, long update) {
+        return handle.weakCompareAndSetRelease(obj, expect, update);
+    }
+
+    public long getAndSet(T obj, long newValue) {
+        return (long) handle.getAndSet(obj, newValue);
+    }
+
+    public long getAndAdd(T obj, long delta) {
+        return (long) handle.getAndAdd(obj, delta);
+    }
+
+    public long addAndGet(T obj, long delta) {
+        return (long) handle.getAndAdd(obj, delta) + delta;
+    }
+
+    public long getAndIncrement(T obj) {
+        return getAndAdd(obj, 1);
+    }
+
+    public long incrementAndGet(T obj) {
+        return addAndGet(obj, 1);
+    }
+
+    public long getAndDecrement(T obj) {
+        return getAndAdd(obj, -1);
+    }
+
+    public long decrementAndGet(T obj) {
+        return addAndGet(obj, -1);
+    }
+
+    public long getAndUpdate(T obj, LongUnaryOperator updateFunction) {
+        long prev = get(obj);
+        for (;;) {
+            long next = updateFunction.applyAsLong(prev);
+            long witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public long updateAndGet(T obj, LongUnaryOperator updateFunction) {
+        long prev = get(obj);
+        for (;;) {
+            long next = updateFunction.applyAsLong(prev);
+            long witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+
+    public long getAndAccumulate(T obj, long x, LongBinaryOperator accumulatorFunction) {
+        long prev = get(obj);
+        for (;;) {
+            long next = accumulatorFunction.applyAsLong(prev, x);
+            long witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public long accumulateAndGet(T obj, long x, LongBinaryOperator accumulatorFunction) {
+        long prev = get(obj);
+        for (;;) {
+            long next = accumulatorFunction.applyAsLong(prev, x);
+            long witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package atomicity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+// RefFieldHandle for the elements of reference arrays, what AtomicReferenceArray does
+// on an array it owns, here on any E[] the caller passes in.
+// the handle checks the array's runtime type, so newUpdater takes the array class.
+@SuppressWarnings("unchecked")
+public final class RefArrayHandle<E> {
+    private final VarHandle handle;
+
+    private RefArrayHandle(VarHandle handle) {
+        this.handle = handle;
+    }
+
+    public static <E> RefArrayHandle<E> newUpdater(Class<E[]> arrayType) {
+        return new RefArrayHandle<>(MethodHandles.arrayElementVarHandle(arrayType));
+    }
+
+    public VarHandle handle() {
+        return handle;
+    }
+
+    public E get(E[] array, int i) {
+        return (E) handle.getVolatile(array, i);
+    }
+
+    public void set(E[] array, int i, E newValue) {
+        handle.setVolatile(array, i, newValue);
+    }
+
+    public E getPlain(E[] array, int i) {
+        return (E) handle.get(array, i);
+    }
+
+    public void setPlain(E[] array, int i, E newValue) {
+        handle.set(array, i, newValue);
+    }
+
+    public E getOpaque(E[] array, int i) {
+        return (E) handle.getOpaque(array, i);
+    }
+
+    public void setOpaque(E[] array, int i, E newValue) {
+        handle.setOpaque(array, i, newValue);
+    }
+
+    public E getAcquire(E[] array, int i) {
+        return (E) handle.getAcquire(array, i);
+    }
+
+    public void setRelease(E[] array, int i, E newValue) {
+        handle.setRelease(array, i, newValue);
+    }
+
+    // AtomicReferenceArray's name for setRelease
+    public void lazySet(E[] array, int i, E newValue) {
+        handle.setRelease(array, i, newValue);
+    }
+
+    public boolean compareAndSet(E[] array, int i, E expect, E update) {
+        return handle.compareAndSet(array, i, expect, update);
+    }
+
+    public E compareAndExchange(E[] array, int i, E expect, E update) {
+        return (E) handle.compareAndExchange(array, i, expect, update);
+    }
+
+    // the weak forms may fail spuriously, use them in retry loops
+    public boolean weakCompareAndSet(E[] array, int i, E expect, E update) {
+        return handle.weakCompareAndSet(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetPlain(E[] array, int i, E expect, E update) {
+        return handle.weakCompareAndSetPlain(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetAcquire(E[] array, int i, E expect, E update) {
+        return handle.weakCompareAndSetAcquire(array, i, expect, update);
+    }
+
+    public boolean weakCompareAndSetRelease(E[] array, int i, E expect, E update) {
+        return handle.weakCompareAndSetRelease(array, i, expect, update);
+    }
+
+    public E getAndSet(E[] array, int i, E newValue) {
+        return (E) handle.getAndSet(array, i, newValue);
+    }
+
+    public E getAndUpdate(E[] array, int i, UnaryOperator<E> updateFunction) {
+        E prev = get(array, i);
+        for (;;) {
+            E next = updateFunction.apply(prev);
+            E witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public E updateAndGet(E[] array, int i, UnaryOperator<E> updateFunction) {
+        E prev = get(array, i);
+        for (;;) {
+            E next = updateFunction.apply(prev);
+            E witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+
+    public E getAndAccumulate(E[] array, int i, E x, BinaryOperator<E> accumulatorFunction) {
+        E prev = get(array, i);
+        for (;;) {
+            E next = accumulatorFunction.apply(prev, x);
+            E witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public E accumulateAndGet(E[] array, int i, E x, BinaryOperator<E> accumulatorFunction) {
+        E prev = get(array, i);
+        for (;;) {
+            E next = accumulatorFunction.apply(prev, x);
+            E witness = compareAndExchange(array, i, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package atomicity;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+// IntFieldHandle for reference fields, the AtomicReferenceFieldUpdater counterpart.
+// compareAndSet and friends compare by identity.
+@SuppressWarnings("unchecked")
+public final class RefFieldHandle<T, V> {
+    private final VarHandle handle;
+
+    private RefFieldHandle(VarHandle handle) {
+        this.handle = handle;
+    }
+
+    // the lookup must be able to access the field, usually MethodHandles.lookup() in the declaring class
+    public static <T, V> RefFieldHandle<T, V> newUpdater(MethodHandles.Lookup lookup, Class<T> type,
+                                                         Class<V> fieldType, String fieldName) {
+        try {
+            return new RefFieldHandle<>(lookup.findVarHandle(type, fieldName, fieldType));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    // for fields this class can reach through a private lookup, e.g. in the same module
+    public static <T, V> RefFieldHandle<T, V> newUpdater(Class<T> type, Class<V> fieldType, String fieldName) {
+        try {
+            return newUpdater(MethodHandles.privateLookupIn(type, MethodHandles.lookup()), type, fieldType, fieldName);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public VarHandle handle() {
+        return handle;
+    }
+
+    public V get(T obj) {
+        return (V) handle.getVolatile(obj);
+    }
+
+    public void set(T obj, V newValue) {
+        handle.setVolatile(obj, newValue);
+    }
+
+    public V getPlain(T obj) {
+        return (V) handle.get(obj);
+    }
+
+    public void setPlain(T obj, V newValue) {
+        handle.set(obj, newValue);
+    }
+
+    public V getOpaque(T obj) {
+        return (V) handle.getOpaque(obj);
+    }
+
+    public void setOpaque(T obj, V newValue) {
+        handle.setOpaque(obj, newValue);
+    }
+
+    public V getAcquire(T obj) {
+        return (V) handle.getAcquire(obj);
+    }
+
+    public void setRelease(T obj, V newValue) {
+        handle.setRelease(obj, newValue);
+    }
+
+    // AtomicReferenceFieldUpdater's name for setRelease
+    public void lazySet(T obj, V newValue) {
+        handle.setRelease(obj, newValue);
+    }
+
+    public boolean compareAndSet(T obj, V expect, V update) {
+        return handle.compareAndSet(obj, expect, update);
+    }
+
+    public V compareAndExchange(T obj, V expect, V update) {
+        return (V) handle.compareAndExchange(obj, expect, update);
+    }
+
+    // the weak forms may fail spuriously, use them in retry loops
+    public boolean weakCompareAndSet(T obj, V expect, V update) {
+        return handle.weakCompareAndSet(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetPlain(T obj, V expect, V update) {
+        return handle.weakCompareAndSetPlain(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetAcquire(T obj, V expect, V update) {
+        return handle.weakCompareAndSetAcquire(obj, expect, update);
+    }
+
+    public boolean weakCompareAndSetRelease(T obj, V expect, V update) {
+        return handle.weakCompareAndSetRelease(obj, expect, update);
+    }
+
+    public V getAndSet(T obj, V newValue) {
+        return (V) handle.getAndSet(obj, newValue);
+    }
+
+    public V getAndUpdate(T obj, UnaryOperator<V> updateFunction) {
+        V prev = get(obj);
+        for (;;) {
+            V next = updateFunction.apply(prev);
+            V witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public V updateAndGet(T obj, UnaryOperator<V> updateFunction) {
+        V prev = get(obj);
+        for (;;) {
+            V next = updateFunction.apply(prev);
+            V witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+
+    public V getAndAccumulate(T obj, V x, BinaryOperator<V> accumulatorFunction) {
+        V prev = get(obj);
+        for (;;) {
+            V next = accumulatorFunction.apply(prev, x);
+            V witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return prev;
+            }
+            prev = witness;
+        }
+    }
+
+    public V accumulateAndGet(T obj, V x, BinaryOperator<V> accumulatorFunction) {
+        V prev = get(obj);
+        for (;;) {
+            V next = accumulatorFunction.apply(prev, x);
+            V witness = compareAndExchange(obj, prev, next);
+            if (witness == prev) {
+                return next;
+            }
+            prev = witness;
+        }
+    }
+}
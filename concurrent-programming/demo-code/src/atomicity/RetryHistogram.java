@@ -0,0 +1,155 @@
+package atomicity;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// how many times a CAS loop had to retry, counted in a buffer per thread:
+// recording is a plain read and an opaque write to memory no other thread writes,
+// so watching the contention adds none of its own.
+// bucket 0 counts first-try successes, bucket k counts retries in [2^(k-1), 2^k).
+// a snapshot sums the buffers of the live threads and the counts folded in from
+// the threads that died, it may miss the increments in flight.
+public final class RetryHistogram {
+    static final int BUCKETS = Integer.SIZE + 1;
+    // one slot past the buckets counts the updates that fell back to the lock
+    static final int FALLBACK = BUCKETS;
+    static final LongArrayHandle SLOTS = LongArrayHandle.newUpdater();
+
+    final ConcurrentLinkedQueue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    // counts of the threads that have died, guarded by itself
+    final long[] retired = new long[BUCKETS + 1];
+    final ThreadLocal<long[]> buffer = ThreadLocal.withInitial(this::register);
+
+    static final class Buffer {
+        final WeakReference<Thread> owner;
+        final long[] counts = new long[BUCKETS + 1];
+
+        Buffer(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        boolean isDead() {
+            Thread t = owner.get();
+            return t == null || !t.isAlive();
+        }
+    }
+
+    private long[] register() {
+        Buffer b = new Buffer(Thread.currentThread());
+        synchronized (retired) {
+            // with pooled threads coming and going the list would otherwise grow without bound
+            retireDead();
+            buffers.add(b);
+        }
+        return b.counts;
+    }
+
+    // must hold the retired lock. a dead thread no longer writes its buffer,
+    // and seeing it dead makes its last writes visible
+    private void retireDead() {
+        for (Iterator<Buffer> it = buffers.iterator(); it.hasNext(); ) {
+            Buffer b = it.next();
+            if (b.isDead()) {
+                for (int i = 0; i < retired.length; i++) {
+                    retired[i] += b.counts[i];
+                }
+                it.remove();
+            }
+        }
+    }
+
+    public void record(int retries) {
+        increment(buffer.get(), bucketOf(retries));
+    }
+
+    public void record(int retries, boolean fellBack) {
+        long[] b = buffer.get();
+        increment(b, bucketOf(retries));
+        if (fellBack) {
+            increment(b, FALLBACK);
+        }
+    }
+
+    private static void increment(long[] b, int i) {
+        SLOTS.setOpaque(b, i, SLOTS.getPlain(b, i) + 1);
+    }
+
+    static int bucketOf(int retries) {
+        return retries <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(retries);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts;
+        synchronized (retired) {
+            retireDead();
+            counts = retired.clone();
+            for (Buffer b : buffers) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += SLOTS.getOpaque(b.counts, i);
+                }
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    public static final class Snapshot {
+        final long[] counts;
+        public final long count;
+        public final long fallbacks;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long c = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                c += counts[i];
+            }
+            this.count = c;
+            this.fallbacks = counts[FALLBACK];
+        }
+
+        // updates that needed at least one retry
+        public long retried() {
+            return count - counts[0];
+        }
+
+        // upper bound of the bucket holding the given percentile, in [0, 100]
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : (1L << i) - 1;
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Snapshot{count=").append(count)
+                .append(", retried=").append(retried())
+                .append(", fallbacks=").append(fallbacks)
+                .append(", p99=").append(percentile(99))
+                .append(", retries={");
+            boolean first = true;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                long low = i == 0 ? 0 : 1L << (i - 1);
+                long high = i == 0 ? 0 : (1L << i) - 1;
+                sb.append(low == high ? Long.toString(low) : low + "-" + high).append('=').append(counts[i]);
+            }
+            return sb.append("}}").toString();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package cache;
+
+// intrusive doubly-linked list, the links live in the nodes
+// so moving an entry never allocates
+final class AccessOrderDeque<K,V> {
+    Node<K,V> head;
+    Node<K,V> tail;
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    Node<K,V> peekFirst() {
+        return head;
+    }
+
+    Node<K,V> peekLast() {
+        return tail;
+    }
+
+    void addLast(Node<K,V> node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+    }
+
+    Node<K,V> pollFirst() {
+        Node<K,V> node = head;
+        if (node != null) {
+            remove(node);
+        }
+        return node;
+    }
+
+    void remove(Node<K,V> node) {
+        Node<K,V> prev = node.prev;
+        Node<K,V> next = node.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    void moveToBack(Node<K,V> node) {
+        if (node != tail) {
+            remove(node);
+            addLast(node);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// coalesces the keys of concurrent callers into one bulk load.
+// the first caller opens a batch and keeps it open for the batching window,
+// callers arriving meanwhile add their keys to it, then the opener seals the
+// batch, runs the bulk load once and every caller picks its keys from the result.
+public class BatchLoader<K,V> {
+    final Function<Set<K>, Map<K,V>> bulkLoader;
+    final long windowNanos;
+    final int maxBatchSize;
+    final ReentrantLock lock = new ReentrantLock();
+    // the batch still accepting keys, guarded by lock
+    Batch<K,V> open;
+
+    public BatchLoader(Function<Set<K>, Map<K,V>> bulkLoader, long window, TimeUnit unit, int maxBatchSize) {
+        if (window < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.bulkLoader = bulkLoader;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Map<K,V> loadAll(Collection<? extends K> keys) {
+        Batch<K,V> batch;
+        boolean leader = false;
+        lock.lock();
+        try {
+            batch = open;
+            if (batch == null || batch.keys.size() + keys.size() > maxBatchSize) {
+                // the full batch keeps running on its own, start a new one
+                batch = new Batch<>();
+                open = batch;
+                leader = true;
+            }
+            batch.keys.addAll(keys);
+        } finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            // keep the batch open so concurrent misses can join it
+            if (windowNanos > 0) {
+                LockSupport.parkNanos(this, windowNanos);
+            }
+            lock.lock();
+            try {
+                if (open == batch) {
+                    open = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                batch.result.complete(bulkLoader.apply(batch.keys));
+            } catch (RuntimeException | Error e) {
+                batch.result.completeExceptionally(e);
+            }
+        }
+
+        Map<K,V> loaded = SingleFlight.await(batch.result);
+        Map<K,V> result = new HashMap<>();
+        for (K key : keys) {
+            V val = loaded.get(key);
+            if (val != null) {
+                result.put(key, val);
+            }
+        }
+        return result;
+    }
+
+    static final class Batch<K,V> {
+        final Set<K> keys = new LinkedHashSet<>();
+        final CompletableFuture<Map<K,V>> result = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,129 @@
+package cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// size-bounded lazy-load cache.
+// hits only touch the ConcurrentHashMap and a striped read buffer, the policy
+// bookkeeping is replayed in batches under the eviction lock, which readers
+// never wait for (they tryLock it when their buffer is full).
+abstract public class BoundedLazyLoadCache<K,V> {
+    final ConcurrentHashMap<K, Node<K,V>> data = new ConcurrentHashMap<>();
+    final ReadBuffer<Node<K,V>> readBuffer = new ReadBuffer<>();
+    final ReentrantLock evictionLock = new ReentrantLock();
+    final SingleFlight<K,V> loads = new SingleFlight<>();
+    final Function<K,V> loader = this::loadAndCache;
+    final EvictionPolicy<K,V> policy;
+    final Consumer<Node<K,V>> recordAccess;
+    final Weigher<? super K, ? super V> weigher;
+    final long maximumWeight;
+    // guarded by evictionLock
+    long weightedSize;
+
+    BoundedLazyLoadCache(long maximumWeight, Weigher<? super K, ? super V> weigher, EvictionPolicy<K,V> policy) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight must not be negative");
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.policy = policy;
+        this.recordAccess = policy::onAccess;
+    }
+
+    public V get(K key) {
+        Node<K,V> node = data.get(key);
+        if (node != null) {
+            afterRead(node);
+            return node.value;
+        }
+
+        // cache miss
+        // one load per key, concurrent misses on the same key wait for it
+        return loads.load(key, loader);
+    }
+
+    V loadAndCache(K key) {
+        // double check, a load for this key may have just finished
+        Node<K,V> node = data.get(key);
+        if (node != null) {
+            return node.value;
+        }
+        V val = loadFromDatabase(key);
+        if (val == null) {
+            return null;
+        }
+        int weight = weigher.weigh(key, val);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative");
+        }
+        node = new Node<>(key, val, weight);
+        Node<K,V> prior = data.putIfAbsent(key, node);
+        if (prior != null) {
+            afterRead(prior);
+            return prior.value;
+        }
+        afterWrite(node);
+        return val;
+    }
+
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // apply the pending reads to the policy
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(recordAccess);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    void afterRead(Node<K,V> node) {
+        if (readBuffer.offer(node) == ReadBuffer.FULL && evictionLock.tryLock()) {
+            try {
+                readBuffer.drainTo(recordAccess);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    void afterWrite(Node<K,V> node) {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(recordAccess);
+            policy.onAdd(node);
+            weightedSize += node.weight;
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    void evictEntries() {
+        while (weightedSize > maximumWeight) {
+            Node<K,V> victim = policy.victim();
+            if (victim == null) {
+                break;
+            }
+            policy.onRemove(victim);
+            weightedSize -= victim.weight;
+            data.remove(victim.key, victim);
+        }
+    }
+
+    protected abstract V loadFromDatabase(K key);
+}
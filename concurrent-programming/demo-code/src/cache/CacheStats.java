@@ -0,0 +1,57 @@
+package cache;
+
+import metrics.LatencyHistogram;
+
+public final class CacheStats {
+    public final long hitCount;
+    public final long missCount;
+    public final long loadSuccessCount;
+    public final long loadFailureCount;
+    public final long evictionCount;
+    public final long optimisticReadFailureCount;
+    // in nanoseconds
+    public final LatencyHistogram.Snapshot loadLatency;
+    public final LatencyHistogram.Snapshot writeLockWait;
+
+    CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+               long evictionCount, long optimisticReadFailureCount,
+               LatencyHistogram.Snapshot loadLatency, LatencyHistogram.Snapshot writeLockWait) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.optimisticReadFailureCount = optimisticReadFailureCount;
+        this.loadLatency = loadLatency;
+        this.writeLockWait = writeLockWait;
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1 : (double) hitCount / requests;
+    }
+
+    // share of the requests whose optimistic read had to fall back to a read lock
+    public double optimisticReadFailureRate() {
+        long requests = requestCount();
+        return requests == 0 ? 0 : (double) optimisticReadFailureCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+            "hitCount=" + hitCount +
+            ", missCount=" + missCount +
+            ", loadSuccessCount=" + loadSuccessCount +
+            ", loadFailureCount=" + loadFailureCount +
+            ", evictionCount=" + evictionCount +
+            ", optimisticReadFailureCount=" + optimisticReadFailureCount +
+            ", loadLatency=" + loadLatency +
+            ", writeLockWait=" + writeLockWait +
+            '}';
+    }
+}
@@ -0,0 +1,27 @@
+package cache;
+
+public interface CacheStatsMXBean {
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    long getEvictionCount();
+
+    double getOptimisticReadFailureRate();
+
+    double getAverageLoadNanos();
+
+    long getLoadP99Nanos();
+
+    long getLoadMaxNanos();
+
+    long getWriteLockWaitP99Nanos();
+
+    long getWriteLockWaitMaxNanos();
+}
@@ -0,0 +1,13 @@
+package cache;
+
+// all methods are called with the eviction lock held
+interface EvictionPolicy<K,V> {
+    void onAdd(Node<K,V> node);
+
+    void onAccess(Node<K,V> node);
+
+    void onRemove(Node<K,V> node);
+
+    // the entry to evict next, or null if the policy tracks nothing
+    Node<K,V> victim();
+}
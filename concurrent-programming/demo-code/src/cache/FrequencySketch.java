@@ -0,0 +1,80 @@
+package cache;
+
+// count-min sketch with 4-bit counters, the popularity estimator of TinyLFU.
+// every long holds sixteen counters; an item maps to four of them, one per
+// hash function, all inside the same long. counters are halved once the
+// sample size is reached so old popularity fades away.
+final class FrequencySketch {
+    static final long[] SEED = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    static final long RESET_MASK = 0x7777777777777777L;
+    static final long ONE_MASK = 0x1111111111111111L;
+    static final int MAXIMUM_CAPACITY = 1 << 20;
+
+    final long[] table;
+    final int tableMask;
+    final int sampleSize;
+    int size;
+
+    FrequencySketch(long expectedEntries) {
+        int capacity = (int) Math.max(1, Math.min(expectedEntries, MAXIMUM_CAPACITY));
+        table = new long[ReadBuffer.ceilingPowerOfTwo(capacity)];
+        tableMask = table.length - 1;
+        sampleSize = 10 * capacity;
+    }
+
+    int frequency(Object e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object e) {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    int indexOf(int item, int i) {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += hash >>> 32;
+        return ((int) hash) & tableMask;
+    }
+
+    static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
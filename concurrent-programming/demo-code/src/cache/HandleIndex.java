@@ -0,0 +1,130 @@
+package cache;
+
+// the key -> packed handle index of OffHeapLazyLoadCache.
+// open addressing with linear probing over parallel key and handle arrays,
+// as in LongKeyLazyLoadCache, so an entry costs no node and no boxed Long.
+// remove shifts the entries behind the gap back instead of leaving tombstones.
+// not thread-safe, the cache guards it with its StampedLock; an optimistic
+// reader may miss or pick up a wrong handle, but never loops or throws.
+final class HandleIndex<K> {
+    // never a valid handle, its offset would lie past the largest slab
+    static final long ABSENT = -1L;
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    // replaced as a whole on resize
+    Table table = new Table(DEFAULT_CAPACITY);
+    int size;
+
+    long get(Object key) {
+        Table t = table;
+        Object[] keys = t.keys;
+        int mask = t.mask;
+        // bounded, a torn read may see the table without a free slot
+        for (int i = indexOf(key, mask), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            Object k = keys[i];
+            if (k == null) {
+                return ABSENT;
+            }
+            if (k == key || k.equals(key)) {
+                return t.handles[i];
+            }
+        }
+        return ABSENT;
+    }
+
+    void put(K key, long handle) {
+        Table t = table;
+        int i = indexOf(key, t.mask);
+        for (Object k; (k = t.keys[i]) != null; i = (i + 1) & t.mask) {
+            if (k == key || k.equals(key)) {
+                t.handles[i] = handle;
+                return;
+            }
+        }
+        if (size + 1 > t.keys.length >>> 1) {
+            t = resize(t);
+            i = indexOf(key, t.mask);
+            while (t.keys[i] != null) {
+                i = (i + 1) & t.mask;
+            }
+        }
+        t.handles[i] = handle;
+        t.keys[i] = key;
+        size++;
+    }
+
+    long remove(Object key) {
+        Table t = table;
+        Object[] keys = t.keys;
+        int mask = t.mask;
+        int i = indexOf(key, mask);
+        for (Object k; ; i = (i + 1) & mask) {
+            if ((k = keys[i]) == null) {
+                return ABSENT;
+            }
+            if (k == key || k.equals(key)) {
+                break;
+            }
+        }
+        long handle = t.handles[i];
+        // move back every entry whose probe runs through the gap
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = indexOf(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                t.handles[i] = t.handles[j];
+                i = j;
+            }
+        }
+        keys[i] = null;
+        size--;
+        return handle;
+    }
+
+    void clear() {
+        table = new Table(DEFAULT_CAPACITY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Table resize(Table old) {
+        if (old.keys.length == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("cache is full");
+        }
+        Table t = new Table(old.keys.length << 1);
+        for (int j = 0; j < old.keys.length; j++) {
+            Object k = old.keys[j];
+            if (k != null) {
+                int i = indexOf(k, t.mask);
+                while (t.keys[i] != null) {
+                    i = (i + 1) & t.mask;
+                }
+                t.keys[i] = k;
+                t.handles[i] = old.handles[j];
+            }
+        }
+        table = t;
+        return t;
+    }
+
+    static int indexOf(Object key, int mask) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    static final class Table {
+        final Object[] keys;
+        final long[] handles;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new Object[capacity];
+            handles = new long[capacity];
+            mask = capacity - 1;
+        }
+    }
+}
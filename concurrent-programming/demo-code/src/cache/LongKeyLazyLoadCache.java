@@ -0,0 +1,169 @@
+package cache;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+// StampedLock lazy-load cache keyed by a primitive long.
+// open addressing with linear probing over parallel key/value arrays,
+// a hit neither boxes the key nor chases a node pointer.
+abstract public class LongKeyLazyLoadCache<V> {
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    final StampedLock stampedLock = new StampedLock();
+    final SingleFlight<Long, V> loads = new SingleFlight<>();
+    final Function<Long, V> loader = this::loadAndCache;
+    // replaced as a whole on resize, guarded by stampedLock
+    Table table;
+    int size;
+
+    public LongKeyLazyLoadCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongKeyLazyLoadCache(int expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Object val;
+        // try optimistic read
+        // nolock
+        long stamp = stampedLock.tryOptimisticRead();
+        if (stamp != 0) {
+            // every probe index is masked and the table is never more than
+            // half full, so even a torn read terminates without throwing
+            val = find(table, key);
+            if (stampedLock.validate(stamp)) {
+                return val != null ? (V) val : loads.load(key, loader);
+            }
+        }
+        // pessmistic read
+        stamp = stampedLock.readLock();
+        try {
+            val = find(table, key);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+        return val != null ? (V) val : loads.load(key, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    V loadAndCache(Long boxedKey) {
+        long key = boxedKey;
+        Object val;
+        long stamp = stampedLock.readLock();
+        try {
+            // double check
+            val = find(table, key);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+        if (val != null) {
+            return (V) val;
+        }
+        V loaded = loadFromDatabase(key);
+        if (loaded == null) {
+            return null;
+        }
+        stamp = stampedLock.writeLock();
+        try {
+            return (V) insert(key, loaded);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    // must hold the write lock
+    Object insert(long key, Object val) {
+        Table t = table;
+        int i = indexOf(key, t.mask);
+        for (Object current; (current = t.values[i]) != null; i = (i + 1) & t.mask) {
+            if (t.keys[i] == key) {
+                return current;
+            }
+        }
+        if (size + 1 > t.keys.length >>> 1) {
+            t = resize(t);
+            i = indexOf(key, t.mask);
+            while (t.values[i] != null) {
+                i = (i + 1) & t.mask;
+            }
+        }
+        t.keys[i] = key;
+        t.values[i] = val;
+        size++;
+        return val;
+    }
+
+    Table resize(Table old) {
+        if (old.keys.length == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("cache is full");
+        }
+        Table t = new Table(old.keys.length << 1);
+        for (int j = 0; j < old.keys.length; j++) {
+            Object val = old.values[j];
+            if (val != null) {
+                int i = indexOf(old.keys[j], t.mask);
+                while (t.values[i] != null) {
+                    i = (i + 1) & t.mask;
+                }
+                t.keys[i] = old.keys[j];
+                t.values[i] = val;
+            }
+        }
+        table = t;
+        return t;
+    }
+
+    public int size() {
+        long stamp = stampedLock.readLock();
+        try {
+            return size;
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    static Object find(Table t, long key) {
+        long[] keys = t.keys;
+        Object[] values = t.values;
+        int mask = t.mask;
+        for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+            Object val = values[i];
+            if (val == null || keys[i] == key) {
+                return val;
+            }
+        }
+    }
+
+    static int indexOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int x = (int) (h ^ (h >>> 32));
+        return (x ^ (x >>> 16)) & mask;
+    }
+
+    static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative");
+        }
+        // keep at least half of the slots empty
+        long capacity = Math.max(DEFAULT_CAPACITY, 2L * expectedSize);
+        return (int) Math.min(MAXIMUM_CAPACITY, Long.highestOneBit(capacity - 1) << 1);
+    }
+
+    protected abstract V loadFromDatabase(long key);
+
+    static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+}
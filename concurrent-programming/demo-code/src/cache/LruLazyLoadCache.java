@@ -0,0 +1,11 @@
+package cache;
+
+abstract public class LruLazyLoadCache<K,V> extends BoundedLazyLoadCache<K,V> {
+    public LruLazyLoadCache(long maximumSize) {
+        this(maximumSize, Weigher.singleton());
+    }
+
+    public LruLazyLoadCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        super(maximumWeight, weigher, new LruPolicy<>());
+    }
+}
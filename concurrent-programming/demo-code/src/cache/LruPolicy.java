@@ -0,0 +1,32 @@
+package cache;
+
+final class LruPolicy<K,V> implements EvictionPolicy<K,V> {
+    final AccessOrderDeque<K,V> deque = new AccessOrderDeque<>();
+
+    @Override
+    public void onAdd(Node<K,V> node) {
+        node.queue = Node.WINDOW;
+        deque.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K,V> node) {
+        // the read may be replayed after the entry was already evicted
+        if (node.queue != Node.UNLINKED) {
+            deque.moveToBack(node);
+        }
+    }
+
+    @Override
+    public void onRemove(Node<K,V> node) {
+        if (node.queue != Node.UNLINKED) {
+            deque.remove(node);
+            node.queue = Node.UNLINKED;
+        }
+    }
+
+    @Override
+    public Node<K,V> victim() {
+        return deque.peekFirst();
+    }
+}
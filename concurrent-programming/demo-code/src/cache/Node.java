@@ -0,0 +1,23 @@
+package cache;
+
+final class Node<K,V> {
+    static final int UNLINKED = 0;
+    static final int WINDOW = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    final K key;
+    final V value;
+    final int weight;
+
+    // guarded by the eviction lock
+    int queue = UNLINKED;
+    Node<K,V> prev;
+    Node<K,V> next;
+
+    Node(K key, V value, int weight) {
+        this.key = key;
+        this.value = value;
+        this.weight = weight;
+    }
+}
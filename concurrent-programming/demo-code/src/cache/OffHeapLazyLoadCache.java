@@ -0,0 +1,201 @@
+package cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+// lazy-load cache that keeps its values serialized in off-heap slabs.
+// the heap only holds the key and a packed long handle per entry
+// (slab index, offset, length) in a HandleIndex, a hit decodes straight out of the slab.
+// when a size class runs out of chunks its oldest entries are evicted,
+// when it has no entries at all it takes a slab over from the largest class.
+abstract public class OffHeapLazyLoadCache<K,V> implements Closeable {
+    final StampedLock stampedLock = new StampedLock();
+    final HandleIndex<K> index = new HandleIndex<>();
+    final SlabAllocator slabs;
+    final Serializer<V> serializer;
+    // insertion order per size class, guarded by the write lock
+    final ArrayDeque<K>[] fifo;
+    final SingleFlight<K,V> loads = new SingleFlight<>();
+    final Function<K,V> loader = this::loadAndCache;
+    // values served but not cached for lack of a chunk
+    final LongAdder skippedStores = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public OffHeapLazyLoadCache(Serializer<V> serializer, SlabAllocator slabs) {
+        this.serializer = serializer;
+        this.slabs = slabs;
+        fifo = (ArrayDeque<K>[]) new ArrayDeque<?>[slabs.sizeClassCount()];
+        for (int i = 0; i < fifo.length; i++) {
+            fifo[i] = new ArrayDeque<>();
+        }
+    }
+
+    public V get(K key) {
+        V val;
+        // try optimistic read
+        // nolock
+        long stamp = stampedLock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                val = read(key);
+                // the chunk may have been evicted and reused while we decoded it
+                if (stampedLock.validate(stamp)) {
+                    return val != null ? val : loads.load(key, loader);
+                }
+            } catch (Throwable e) {
+                // decoding a chunk a writer was rewriting can throw anything, an Error too
+                if (stampedLock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        // pessmistic read
+        stamp = stampedLock.readLock();
+        try {
+            val = read(key);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+        return val != null ? val : loads.load(key, loader);
+    }
+
+    V read(K key) {
+        long h = index.get(key);
+        if (h == HandleIndex.ABSENT) {
+            return null;
+        }
+        // a torn optimistic read may see any length, never allocate past a slab for it
+        if (offsetOf(h) + lengthOf(h) > slabs.slabSize) {
+            throw new IllegalStateException("corrupt handle " + Long.toHexString(h));
+        }
+        return serializer.read(slabs.slab(slabOf(h)), offsetOf(h), lengthOf(h));
+    }
+
+    V loadAndCache(K key) {
+        V val;
+        long stamp = stampedLock.readLock();
+        try {
+            // double check
+            val = read(key);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+        if (val != null) {
+            return val;
+        }
+        val = loadFromDatabase(key);
+        if (val == null) {
+            return null;
+        }
+        int length = serializer.size(val);
+        int sizeClass = slabs.sizeClassOf(length);
+        if (sizeClass < 0) {
+            // larger than a slab, served but never cached
+            return val;
+        }
+        stamp = stampedLock.writeLock();
+        try {
+            if (index.get(key) == HandleIndex.ABSENT) {
+                store(key, val, length, sizeClass);
+            }
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+        return val;
+    }
+
+    // must hold the write lock
+    void store(K key, V val, int length, int sizeClass) {
+        long address;
+        while ((address = slabs.allocate(sizeClass)) < 0) {
+            // reclaim the chunk of the oldest entry in this class
+            K victim = fifo[sizeClass].pollFirst();
+            if (victim == null) {
+                // every slab is owned by other size classes
+                if (!reassignSlab(sizeClass)) {
+                    skippedStores.increment();
+                    return;
+                }
+                continue;
+            }
+            long h = index.remove(victim);
+            slabs.free(sizeClass, SlabAllocator.address(slabOf(h), offsetOf(h)));
+        }
+        int slab = (int) (address >>> 32);
+        int offset = (int) address;
+        serializer.write(val, slabs.slab(slab), offset);
+        index.put(key, handle(slab, offset, length));
+        fifo[sizeClass].addLast(key);
+    }
+
+    // memcached-style slab rebalancing: the largest class gives up its earliest slab
+    // along with every entry in it. must hold the write lock
+    boolean reassignSlab(int sizeClass) {
+        int donor = slabs.largestClassExcept(sizeClass);
+        if (donor < 0) {
+            return false;
+        }
+        int slab = slabs.firstSlabOf(donor);
+        fifo[donor].removeIf(k -> {
+            if (slabOf(index.get(k)) != slab) {
+                return false;
+            }
+            index.remove(k);
+            return true;
+        });
+        slabs.reassign(slab, sizeClass);
+        return true;
+    }
+
+    public long skippedStores() {
+        return skippedStores.sum();
+    }
+
+    public int size() {
+        long stamp = stampedLock.readLock();
+        try {
+            return index.size();
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    // drops the slabs and closes a mapped file, the memory goes back once the gc
+    // finds the buffers unreachable
+    @Override
+    public void close() throws IOException {
+        long stamp = stampedLock.writeLock();
+        try {
+            index.clear();
+            for (ArrayDeque<K> q : fifo) {
+                q.clear();
+            }
+            slabs.close();
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    protected abstract V loadFromDatabase(K key);
+
+    // 16 bits slab, 24 bits offset, 24 bits length
+    static long handle(int slab, int offset, int length) {
+        return ((long) slab << 48) | ((long) offset << 24) | length;
+    }
+
+    static int slabOf(long handle) {
+        return (int) (handle >>> 48);
+    }
+
+    static int offsetOf(long handle) {
+        return (int) (handle >>> 24) & 0xffffff;
+    }
+
+    static int lengthOf(long handle) {
+        return (int) handle & 0xffffff;
+    }
+}
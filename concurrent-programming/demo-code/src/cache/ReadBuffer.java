@@ -0,0 +1,71 @@
+package cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// lossy, striped ring buffers that record reads without taking the eviction lock.
+// producers CAS their stripe's write counter, the single drainer (holding the
+// eviction lock) replays the recorded reads into the policy.
+final class ReadBuffer<E> {
+    static final int SUCCESS = 0;
+    static final int FAILED = 1;
+    static final int FULL = 2;
+
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+    static final int STRIPES = ceilingPowerOfTwo(Math.min(NCPU * 2, 64));
+    static final int BUFFER_SIZE = 16;
+    static final int BUFFER_MASK = BUFFER_SIZE - 1;
+    // 16 longs apart, so every stripe's counters sit on their own cache line
+    static final int PAD = 16;
+
+    final AtomicLongArray writeCounters = new AtomicLongArray(STRIPES * PAD);
+    final AtomicLongArray readCounters = new AtomicLongArray(STRIPES * PAD);
+    final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPES * BUFFER_SIZE);
+
+    int offer(E e) {
+        int stripe = stripe();
+        int counter = stripe * PAD;
+        long head = readCounters.get(counter);
+        long tail = writeCounters.get(counter);
+        if (tail - head >= BUFFER_SIZE) {
+            return FULL;
+        }
+        if (writeCounters.compareAndSet(counter, tail, tail + 1)) {
+            buffer.lazySet(stripe * BUFFER_SIZE + (int) (tail & BUFFER_MASK), e);
+            return SUCCESS;
+        }
+        // lost the race to another reader, dropping the record is fine
+        return FAILED;
+    }
+
+    // caller must hold the eviction lock
+    void drainTo(Consumer<E> consumer) {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int counter = stripe * PAD;
+            long head = readCounters.get(counter);
+            long tail = writeCounters.get(counter);
+            for (; head < tail; head++) {
+                int index = stripe * BUFFER_SIZE + (int) (head & BUFFER_MASK);
+                E e = buffer.get(index);
+                if (e == null) {
+                    // slot claimed but not yet published
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            readCounters.lazySet(counter, head);
+        }
+    }
+
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+}
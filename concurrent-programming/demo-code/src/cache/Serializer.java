@@ -0,0 +1,82 @@
+package cache;
+
+import java.nio.ByteBuffer;
+
+// values are written to and read from the slabs with absolute puts and gets,
+// so the shared slab buffers are never repositioned
+public interface Serializer<V> {
+    int size(V value);
+
+    void write(V value, ByteBuffer slab, int offset);
+
+    V read(ByteBuffer slab, int offset, int length);
+
+    Serializer<byte[]> BYTES = new Serializer<byte[]>() {
+        @Override
+        public int size(byte[] value) {
+            return value.length;
+        }
+
+        @Override
+        public void write(byte[] value, ByteBuffer slab, int offset) {
+            view(slab, offset, value.length).put(value);
+        }
+
+        @Override
+        public byte[] read(ByteBuffer slab, int offset, int length) {
+            byte[] value = new byte[length];
+            view(slab, offset, length).get(value);
+            return value;
+        }
+    };
+
+    Serializer<String> STRING = new Serializer<String>() {
+        // larger strings decode into an array of their own, a thread does not keep it
+        static final int MAX_SCRATCH_CHARS = 1 << 16;
+
+        // a hit decodes here and copies once into the String
+        final ThreadLocal<char[]> scratch = ThreadLocal.withInitial(() -> new char[64]);
+
+        @Override
+        public int size(String value) {
+            return value.length() << 1;
+        }
+
+        @Override
+        public void write(String value, ByteBuffer slab, int offset) {
+            int n = value.length();
+            char[] chars = chars(n);
+            value.getChars(0, n, chars, 0);
+            view(slab, offset, n << 1).asCharBuffer().put(chars, 0, n);
+        }
+
+        @Override
+        public String read(ByteBuffer slab, int offset, int length) {
+            int n = length >>> 1;
+            char[] chars = chars(n);
+            view(slab, offset, n << 1).asCharBuffer().get(chars, 0, n);
+            return new String(chars, 0, n);
+        }
+
+        char[] chars(int n) {
+            char[] chars = scratch.get();
+            if (chars.length >= n) {
+                return chars;
+            }
+            if (n > MAX_SCRATCH_CHARS) {
+                return new char[n];
+            }
+            chars = new char[Math.max(n, Math.min(chars.length << 1, MAX_SCRATCH_CHARS))];
+            scratch.set(chars);
+            return chars;
+        }
+    };
+
+    // a window onto [offset, offset + length) of the slab for bulk gets and puts.
+    // a duplicate starts out big-endian, it takes the slab's order
+    private static ByteBuffer view(ByteBuffer slab, int offset, int length) {
+        ByteBuffer view = slab.duplicate().order(slab.order());
+        view.limit(offset + length).position(offset);
+        return view;
+    }
+}
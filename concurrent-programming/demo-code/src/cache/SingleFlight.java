@@ -0,0 +1,99 @@
+package cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// per-key load deduplication: concurrent calls for the same key share one load,
+// calls for different keys never wait for each other
+public class SingleFlight<K,V> {
+    final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V val = loader.apply(key);
+            flight.complete(val);
+            return val;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // joins the flights already running for some keys and loads the rest in one bulk call,
+    // so a get(k) and a getAll([k]) racing each other load k once.
+    // keys missing from the bulk result, or loaded as null, are missing from the returned map
+    public Map<K,V> loadAll(Collection<? extends K> keys, Function<? super List<K>, ? extends Map<K,V>> bulkLoader) {
+        Map<K, CompletableFuture<V>> owned = new HashMap<>();
+        Map<K, CompletableFuture<V>> joined = new HashMap<>();
+        for (K key : keys) {
+            if (owned.containsKey(key) || joined.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                joined.put(key, existing);
+            } else {
+                owned.put(key, flight);
+            }
+        }
+        Map<K,V> result = new HashMap<>();
+        if (!owned.isEmpty()) {
+            try {
+                Map<K,V> loaded = bulkLoader.apply(new ArrayList<>(owned.keySet()));
+                for (Map.Entry<K, CompletableFuture<V>> e : owned.entrySet()) {
+                    V val = loaded.get(e.getKey());
+                    e.getValue().complete(val);
+                    if (val != null) {
+                        result.put(e.getKey(), val);
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                for (CompletableFuture<V> flight : owned.values()) {
+                    flight.completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                for (Map.Entry<K, CompletableFuture<V>> e : owned.entrySet()) {
+                    inFlight.remove(e.getKey(), e.getValue());
+                }
+            }
+        }
+        for (Map.Entry<K, CompletableFuture<V>> e : joined.entrySet()) {
+            V val = await(e.getValue());
+            if (val != null) {
+                result.put(e.getKey(), val);
+            }
+        }
+        return result;
+    }
+
+    static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// memcached-style slab allocator over direct or memory-mapped ByteBuffers.
+// memory is carved into fixed-size slabs, every slab belongs to one size class
+// (chunks of 64B, 128B, ... up to the slab size), freed chunks go back to
+// their class's free list and are reused as they are. once every slab is handed
+// out, a starving class can take a whole slab over from another class.
+// not thread-safe, the owning cache calls it under its write lock.
+public final class SlabAllocator implements Closeable {
+    static final int MIN_CHUNK_SHIFT = 6;
+    // a handle keeps the slab index in 16 bits, offset and length in 24 bits each
+    static final int MAX_SLABS = 1 << 16;
+    static final int MAX_SLAB_SIZE = 1 << 23;
+
+    final int slabSize;
+    final int maxSlabs;
+    final FileChannel channel;
+    final List<ByteBuffer> slabs = new ArrayList<>();
+    final SizeClass[] classes;
+    // the size class owning each slab
+    final int[] owners;
+    boolean closed;
+
+    SlabAllocator(int slabSize, long maxMemory, FileChannel channel) {
+        if (slabSize < (1 << MIN_CHUNK_SHIFT) || slabSize > MAX_SLAB_SIZE || Integer.bitCount(slabSize) != 1) {
+            throw new IllegalArgumentException("slabSize must be a power of two in [64, 8MB]");
+        }
+        if (maxMemory < slabSize) {
+            throw new IllegalArgumentException("maxMemory must hold at least one slab");
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.min(MAX_SLABS, maxMemory / slabSize);
+        this.channel = channel;
+        owners = new int[maxSlabs];
+        classes = new SizeClass[Integer.numberOfTrailingZeros(slabSize) - MIN_CHUNK_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(1 << (i + MIN_CHUNK_SHIFT));
+        }
+    }
+
+    public static SlabAllocator direct(int slabSize, long maxMemory) {
+        return new SlabAllocator(slabSize, maxMemory, null);
+    }
+
+    public static SlabAllocator mapped(Path file, int slabSize, long maxMemory) {
+        try {
+            FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new SlabAllocator(slabSize, maxMemory, channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // -1 if the length does not fit in a slab
+    int sizeClassOf(int length) {
+        if (length > slabSize) {
+            return -1;
+        }
+        if (length <= 1 << MIN_CHUNK_SHIFT) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_CHUNK_SHIFT;
+    }
+
+    // the chunk's address, or -1 when the class is out of chunks and no slab is left
+    long allocate(int sizeClass) {
+        if (closed) {
+            throw new IllegalStateException("allocator closed");
+        }
+        SizeClass c = classes[sizeClass];
+        if (c.freeCount > 0) {
+            return c.free[--c.freeCount];
+        }
+        if (c.currentSlab < 0 || c.nextOffset + c.chunkSize > slabSize) {
+            if (slabs.size() == maxSlabs) {
+                return -1;
+            }
+            c.currentSlab = newSlab();
+            c.nextOffset = 0;
+            c.slabCount++;
+            owners[c.currentSlab] = sizeClass;
+        }
+        long address = address(c.currentSlab, c.nextOffset);
+        c.nextOffset += c.chunkSize;
+        return address;
+    }
+
+    void free(int sizeClass, long address) {
+        SizeClass c = classes[sizeClass];
+        if (c.freeCount == c.free.length) {
+            c.free = Arrays.copyOf(c.free, c.free.length << 1);
+        }
+        c.free[c.freeCount++] = address;
+    }
+
+    // the class owning the most slabs besides the given one, -1 if there is none
+    int largestClassExcept(int sizeClass) {
+        int largest = -1;
+        for (int i = 0; i < classes.length; i++) {
+            if (i != sizeClass && classes[i].slabCount > 0
+                && (largest < 0 || classes[i].slabCount > classes[largest].slabCount)) {
+                largest = i;
+            }
+        }
+        return largest;
+    }
+
+    // the lowest, and so the earliest filled, slab of a class
+    int firstSlabOf(int sizeClass) {
+        for (int i = 0; i < slabs.size(); i++) {
+            if (owners[i] == sizeClass) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // hands a whole slab to another class, the caller has already
+    // dropped every entry living in it
+    void reassign(int slab, int sizeClass) {
+        SizeClass from = classes[owners[slab]];
+        int n = 0;
+        for (int i = 0; i < from.freeCount; i++) {
+            if ((int) (from.free[i] >>> 32) != slab) {
+                from.free[n++] = from.free[i];
+            }
+        }
+        from.freeCount = n;
+        if (from.currentSlab == slab) {
+            from.currentSlab = -1;
+        }
+        from.slabCount--;
+        // only called when the class has no room left, nothing of its current slab is lost
+        SizeClass to = classes[sizeClass];
+        to.currentSlab = slab;
+        to.nextOffset = 0;
+        to.slabCount++;
+        owners[slab] = sizeClass;
+    }
+
+    int newSlab() {
+        ByteBuffer slab;
+        if (channel == null) {
+            slab = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            try {
+                slab = channel.map(FileChannel.MapMode.READ_WRITE, (long) slabs.size() * slabSize, slabSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        slabs.add(slab);
+        return slabs.size() - 1;
+    }
+
+    ByteBuffer slab(int index) {
+        return slabs.get(index);
+    }
+
+    int sizeClassCount() {
+        return classes.length;
+    }
+
+    public long allocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // there is no public way to free a direct or mapped buffer, once unreachable
+        // the gc frees them and unmaps the file
+        slabs.clear();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    static long address(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    static final class SizeClass {
+        final int chunkSize;
+        long[] free = new long[16];
+        int freeCount;
+        int currentSlab = -1;
+        int nextOffset;
+        int slabCount;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package cache;
+
+import metrics.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters are LongAdders and the histograms only see the miss and write paths,
+// so a hit costs one striped increment
+public class StatsCounter {
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder loadSuccesses = new LongAdder();
+    final LongAdder loadFailures = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder optimisticReadFailures = new LongAdder();
+    final LatencyHistogram loadLatency = new LatencyHistogram();
+    final LatencyHistogram writeLockWait = new LatencyHistogram();
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordHits(int count) {
+        hits.add(count);
+    }
+
+    public void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    public void recordLoadSuccess(long nanos) {
+        loadSuccesses.increment();
+        loadLatency.record(nanos);
+    }
+
+    public void recordLoadFailure(long nanos) {
+        loadFailures.increment();
+        loadLatency.record(nanos);
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordOptimisticReadFailure() {
+        optimisticReadFailures.increment();
+    }
+
+    public void recordWriteLockWait(long nanos) {
+        writeLockWait.record(nanos);
+    }
+
+    public CacheStats snapshot() {
+        return new CacheStats(hits.sum(), misses.sum(), loadSuccesses.sum(), loadFailures.sum(),
+            evictions.sum(), optimisticReadFailures.sum(), loadLatency.snapshot(), writeLockWait.snapshot());
+    }
+
+    public ObjectName registerMBean(String cacheName) {
+        try {
+            ObjectName name = new ObjectName("cache:type=LazyLoadCache,name=" + ObjectName.quote(cacheName));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MXBean(this), name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register the stats of " + cacheName, e);
+        }
+    }
+
+    static final class MXBean implements CacheStatsMXBean {
+        final StatsCounter counter;
+
+        MXBean(StatsCounter counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public long getHitCount() {
+            return counter.hits.sum();
+        }
+
+        @Override
+        public long getMissCount() {
+            return counter.misses.sum();
+        }
+
+        @Override
+        public double getHitRate() {
+            return counter.snapshot().hitRate();
+        }
+
+        @Override
+        public long getLoadSuccessCount() {
+            return counter.loadSuccesses.sum();
+        }
+
+        @Override
+        public long getLoadFailureCount() {
+            return counter.loadFailures.sum();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return counter.evictions.sum();
+        }
+
+        @Override
+        public double getOptimisticReadFailureRate() {
+            return counter.snapshot().optimisticReadFailureRate();
+        }
+
+        @Override
+        public double getAverageLoadNanos() {
+            return counter.loadLatency.snapshot().mean();
+        }
+
+        @Override
+        public long getLoadP99Nanos() {
+            return counter.loadLatency.snapshot().percentile(99);
+        }
+
+        @Override
+        public long getLoadMaxNanos() {
+            return counter.loadLatency.snapshot().max;
+        }
+
+        @Override
+        public long getWriteLockWaitP99Nanos() {
+            return counter.writeLockWait.snapshot().percentile(99);
+        }
+
+        @Override
+        public long getWriteLockWaitMaxNanos() {
+            return counter.writeLockWait.snapshot().max;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+// keys are hashed into independently locked stripes, so readers and writers of
+// different stripes never touch the same lock word
+abstract public class StripedLazyLoadCache<K,V> {
+    final Stripe<K,V>[] stripes;
+    final int stripeShift;
+    final SingleFlight<K,V> loads = new SingleFlight<>();
+    final Function<K,V> loader = this::loadAndCache;
+
+    public StripedLazyLoadCache() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedLazyLoadCache(int stripeCount) {
+        if (stripeCount <= 0 || stripeCount > (1 << 16)) {
+            throw new IllegalArgumentException("stripeCount must be in (0, 65536]");
+        }
+        int n = ReadBuffer.ceilingPowerOfTwo(stripeCount);
+        stripes = (Stripe<K,V>[]) new Stripe<?,?>[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        // stripes are picked by the high bits, the HashMap inside uses the low ones
+        stripeShift = 32 - Integer.numberOfTrailingZeros(n);
+    }
+
+    public V get(K key) {
+        V val = stripeFor(key).read(key);
+        if (val != null) {
+            return val;
+        }
+        // cache miss
+        // one load per key, concurrent misses on the same key wait for it
+        return loads.load(key, loader);
+    }
+
+    V loadAndCache(K key) {
+        Stripe<K,V> stripe = stripeFor(key);
+        // double check
+        V val = stripe.read(key);
+        if (val != null) {
+            return val;
+        }
+        val = loadFromDatabase(key);
+        stripe.write(key, val);
+        return val;
+    }
+
+    Stripe<K,V> stripeFor(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes.length == 1 ? stripes[0] : stripes[h >>> stripeShift];
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public List<StripeContention> contention() {
+        List<StripeContention> result = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe<K,V> stripe = stripes[i];
+            result.add(new StripeContention(i,
+                stripe.reads.sum(),
+                stripe.optimisticFailures.sum(),
+                stripe.writes.sum(),
+                stripe.contendedWrites.sum(),
+                stripe.writeWaitNanos.sum()));
+        }
+        return result;
+    }
+
+    protected abstract V loadFromDatabase(K key);
+
+    static final class Stripe<K,V> {
+        final StampedLock lock = new StampedLock();
+        final HashMap<K,V> map = new HashMap<>();
+        final LongAdder reads = new LongAdder();
+        final LongAdder optimisticFailures = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder contendedWrites = new LongAdder();
+        final LongAdder writeWaitNanos = new LongAdder();
+
+        V read(K key) {
+            reads.increment();
+            // try optimistic read
+            // nolock
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    V val = map.get(key);
+                    if (lock.validate(stamp)) {
+                        return val;
+                    }
+                } catch (Throwable e) {
+                    // a writer was resizing the map under us, an Error is as likely as an exception.
+                    // whatever we saw is garbage unless nobody wrote
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+            }
+            // optimistic read failed
+            // pessmistic read
+            optimisticFailures.increment();
+            stamp = lock.readLock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void write(K key, V val) {
+            writes.increment();
+            long stamp = lock.tryWriteLock();
+            if (stamp == 0) {
+                contendedWrites.increment();
+                long start = System.nanoTime();
+                stamp = lock.writeLock();
+                writeWaitNanos.add(System.nanoTime() - start);
+            }
+            try {
+                map.put(key, val);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public static final class StripeContention {
+        public final int stripe;
+        public final long reads;
+        public final long optimisticFailures;
+        public final long writes;
+        public final long contendedWrites;
+        public final long writeWaitNanos;
+
+        StripeContention(int stripe, long reads, long optimisticFailures,
+                         long writes, long contendedWrites, long writeWaitNanos) {
+            this.stripe = stripe;
+            this.reads = reads;
+            this.optimisticFailures = optimisticFailures;
+            this.writes = writes;
+            this.contendedWrites = contendedWrites;
+            this.writeWaitNanos = writeWaitNanos;
+        }
+
+        public double optimisticFailureRate() {
+            return reads == 0 ? 0 : (double) optimisticFailures / reads;
+        }
+
+        @Override
+        public String toString() {
+            return "StripeContention{" +
+                "stripe=" + stripe +
+                ", reads=" + reads +
+                ", optimisticFailures=" + optimisticFailures +
+                ", writes=" + writes +
+                ", contendedWrites=" + contendedWrites +
+                ", writeWaitNanos=" + writeWaitNanos +
+                '}';
+        }
+    }
+}
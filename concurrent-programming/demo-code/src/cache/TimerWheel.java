@@ -0,0 +1,97 @@
+package cache;
+
+import java.util.function.Consumer;
+
+// hashed timer wheel: timers hang in the bucket of their deadline's tick,
+// advancing only walks the buckets whose ticks have passed since the last call.
+// timers more than one rotation away stay in their bucket until their turn.
+// not thread-safe, callers guard it with their own lock.
+public final class TimerWheel<T extends TimerWheel.Timer> {
+    public abstract static class Timer {
+        long deadline;
+        int bucket = -1;
+        Timer prev;
+        Timer next;
+
+        protected Timer() {
+        }
+
+        public final boolean isScheduled() {
+            return bucket >= 0;
+        }
+    }
+
+    final Timer[] buckets;
+    final int mask;
+    final long tickNanos;
+    final long origin;
+    long currentTick;
+
+    public TimerWheel(int bucketCount, long tickNanos) {
+        if (bucketCount <= 0 || tickNanos <= 0) {
+            throw new IllegalArgumentException();
+        }
+        buckets = new Timer[ReadBuffer.ceilingPowerOfTwo(bucketCount)];
+        mask = buckets.length - 1;
+        this.tickNanos = tickNanos;
+        origin = System.nanoTime();
+    }
+
+    public void schedule(T timer, long deadlineNanos) {
+        deschedule(timer);
+        long tick = Math.max(tickOf(deadlineNanos), currentTick);
+        int index = (int) (tick & mask);
+        timer.deadline = deadlineNanos;
+        timer.bucket = index;
+        timer.prev = null;
+        timer.next = buckets[index];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        buckets[index] = timer;
+    }
+
+    public void deschedule(T timer) {
+        if (timer.bucket < 0) {
+            return;
+        }
+        if (timer.prev == null) {
+            buckets[timer.bucket] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.bucket = -1;
+    }
+
+    // fires every timer whose deadline is not after now
+    @SuppressWarnings("unchecked")
+    public void advance(long nowNanos, Consumer<? super T> expired) {
+        long target = tickOf(nowNanos);
+        if (target < currentTick) {
+            return;
+        }
+        // more than a full rotation behind, every bucket is visited once
+        long from = Math.max(currentTick, target - mask);
+        for (long tick = from; tick <= target; tick++) {
+            Timer timer = buckets[(int) (tick & mask)];
+            while (timer != null) {
+                Timer next = timer.next;
+                if (nowNanos - timer.deadline >= 0) {
+                    deschedule((T) timer);
+                    expired.accept((T) timer);
+                }
+                timer = next;
+            }
+        }
+        currentTick = target;
+    }
+
+    long tickOf(long nanos) {
+        return Math.max(0, nanos - origin) / tickNanos;
+    }
+}
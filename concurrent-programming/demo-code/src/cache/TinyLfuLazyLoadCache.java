@@ -0,0 +1,11 @@
+package cache;
+
+abstract public class TinyLfuLazyLoadCache<K,V> extends BoundedLazyLoadCache<K,V> {
+    public TinyLfuLazyLoadCache(long maximumSize) {
+        this(maximumSize, Weigher.singleton());
+    }
+
+    public TinyLfuLazyLoadCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        super(maximumWeight, weigher, new TinyLfuPolicy<>(maximumWeight));
+    }
+}
@@ -0,0 +1,111 @@
+package cache;
+
+// W-TinyLFU: new entries land in a small LRU window, entries pushed out of the
+// window compete with the main space's LRU victim and the one the sketch has
+// seen less often loses. the main space is a segmented LRU, entries hit while
+// on probation are promoted to the protected segment.
+final class TinyLfuPolicy<K,V> implements EvictionPolicy<K,V> {
+    static final double WINDOW_PERCENT = 0.01;
+    static final double PROTECTED_PERCENT = 0.80;
+
+    final AccessOrderDeque<K,V> window = new AccessOrderDeque<>();
+    final AccessOrderDeque<K,V> probation = new AccessOrderDeque<>();
+    final AccessOrderDeque<K,V> protect = new AccessOrderDeque<>();
+    final FrequencySketch sketch;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long windowWeight;
+    long protectedWeight;
+
+    TinyLfuPolicy(long maximumWeight) {
+        sketch = new FrequencySketch(maximumWeight);
+        windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_PERCENT));
+        protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_PERCENT);
+    }
+
+    @Override
+    public void onAdd(Node<K,V> node) {
+        sketch.increment(node.key);
+        node.queue = Node.WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        // the window overflows into probation, where the candidates wait for admission
+        while (windowWeight > windowMaximum && !window.isEmpty()) {
+            Node<K,V> candidate = window.pollFirst();
+            windowWeight -= candidate.weight;
+            candidate.queue = Node.PROBATION;
+            probation.addLast(candidate);
+        }
+    }
+
+    @Override
+    public void onAccess(Node<K,V> node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                sketch.increment(node.key);
+                window.moveToBack(node);
+                break;
+            case Node.PROBATION:
+                sketch.increment(node.key);
+                probation.remove(node);
+                node.queue = Node.PROTECTED;
+                protect.addLast(node);
+                protectedWeight += node.weight;
+                demoteFromProtected();
+                break;
+            case Node.PROTECTED:
+                sketch.increment(node.key);
+                protect.moveToBack(node);
+                break;
+            default:
+                // already evicted or not yet added
+        }
+    }
+
+    void demoteFromProtected() {
+        while (protectedWeight > protectedMaximum && !protect.isEmpty()) {
+            Node<K,V> demoted = protect.pollFirst();
+            protectedWeight -= demoted.weight;
+            demoted.queue = Node.PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    @Override
+    public void onRemove(Node<K,V> node) {
+        switch (node.queue) {
+            case Node.WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case Node.PROBATION:
+                probation.remove(node);
+                break;
+            case Node.PROTECTED:
+                protect.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+        node.queue = Node.UNLINKED;
+    }
+
+    @Override
+    public Node<K,V> victim() {
+        if (!probation.isEmpty()) {
+            // the newest probation entry is the admission candidate,
+            // the oldest one is the main space's victim
+            Node<K,V> candidate = probation.peekLast();
+            Node<K,V> victim = probation.peekFirst();
+            if (candidate == victim) {
+                return victim;
+            }
+            return sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        }
+        if (!protect.isEmpty()) {
+            return protect.peekFirst();
+        }
+        return window.peekFirst();
+    }
+}
@@ -0,0 +1,10 @@
+package cache;
+
+@FunctionalInterface
+public interface Weigher<K,V> {
+    int weigh(K key, V value);
+
+    static <K,V> Weigher<K,V> singleton() {
+        return (key, value) -> 1;
+    }
+}
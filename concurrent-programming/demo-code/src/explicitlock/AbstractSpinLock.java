@@ -0,0 +1,169 @@
+package explicitlock;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+// spin-then-park acquisition shared by the spin locks.
+// a waiter first spins with exponential backoff; if the lock does not come free
+// within its spin budget it parks until the holder's unlock wakes it up.
+// the budget adapts: it doubles when spinning paid off and halves when it did not,
+// so short critical sections never park and long ones do not burn a core.
+abstract class AbstractSpinLock implements Lock {
+    static final int MIN_SPIN_ATTEMPTS = 1 << 2;
+    static final int MAX_SPIN_ATTEMPTS = 1 << 10;
+    static final int MIN_BACKOFF_SPINS = 1 << 2;
+    static final int MAX_BACKOFF_SPINS = 1 << 10;
+    static final int SPINS_BEFORE_YIELD = 1 << 10;
+    // spinning cannot make progress when the holder needs our cpu to run
+    static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+
+    final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    // a hint, racy updates are fine
+    volatile int spinAttempts = MAX_SPIN_ATTEMPTS >>> 2;
+
+    // frees the lock, true if it is now available to other threads
+    abstract boolean release();
+
+    abstract boolean isHeldByCurrentThread();
+
+    // a Condition has to release every hold before waiting
+    int fullyRelease() {
+        unlock();
+        return 1;
+    }
+
+    void reacquire(int holds) {
+        lock();
+    }
+
+    @Override
+    public void lock() {
+        if (!tryLock()) {
+            try {
+                acquire(false, 0L);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (!tryLock()) {
+            acquire(true, 0L);
+        }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryLock()) {
+            return true;
+        }
+        long nanos = unit.toNanos(time);
+        if (nanos <= 0) {
+            return false;
+        }
+        // 0 means no deadline
+        long deadline = (System.nanoTime() + nanos) | 1L;
+        return acquire(true, deadline);
+    }
+
+    @Override
+    public void unlock() {
+        if (release()) {
+            signalWaiter();
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        return new SpinCondition(this);
+    }
+
+    boolean acquire(boolean interruptible, long deadline) throws InterruptedException {
+        int attempts = MULTIPROCESSOR ? spinAttempts : 0;
+        Backoff backoff = new Backoff(MIN_BACKOFF_SPINS, MAX_BACKOFF_SPINS);
+        for (int i = 0; i < attempts; i++) {
+            backoff.backoff();
+            if (tryLock()) {
+                // spinning paid off, allow a longer spin next time
+                spinAttempts = Math.min(MAX_SPIN_ATTEMPTS, attempts << 1);
+                return true;
+            }
+            if (interruptible && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (deadline != 0L && deadline - System.nanoTime() <= 0L) {
+                return false;
+            }
+        }
+        if (MULTIPROCESSOR) {
+            spinAttempts = Math.max(MIN_SPIN_ATTEMPTS, attempts >>> 1);
+        }
+        return park(interruptible, deadline);
+    }
+
+    boolean park(boolean interruptible, long deadline) throws InterruptedException {
+        Thread t = Thread.currentThread();
+        boolean acquired = false;
+        boolean interrupted = false;
+        // enqueue before the last try, an unlock in between then either
+        // lets the try succeed or sees us in the queue and unparks us
+        waiters.add(t);
+        try {
+            while (!(acquired = tryLock())) {
+                if (deadline == 0L) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    if (interruptible) {
+                        throw new InterruptedException();
+                    }
+                    interrupted = true;
+                }
+            }
+            return true;
+        } finally {
+            waiters.remove(t);
+            if (!acquired) {
+                // we may have swallowed the wake-up meant for the next waiter
+                signalWaiter();
+            }
+            if (interrupted) {
+                t.interrupt();
+            }
+        }
+    }
+
+    // for locks whose waiters spin on a queue node, past the threshold
+    // they yield so an oversubscribed machine still lets the holder run
+    static void spinWait(int spins) {
+        if (MULTIPROCESSOR && spins < SPINS_BEFORE_YIELD) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    void signalWaiter() {
+        Thread next = waiters.peek();
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package explicitlock;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// randomized exponential backoff for spin loops.
+// each call spins a random number of times below the current limit and
+// doubles the limit, so colliding threads spread out instead of retrying in lockstep.
+// one instance per waiting thread, not thread-safe.
+public final class Backoff {
+    final int minSpins;
+    final int maxSpins;
+    int limit;
+
+    public Backoff(int minSpins, int maxSpins) {
+        if (minSpins <= 0 || maxSpins < minSpins) {
+            throw new IllegalArgumentException();
+        }
+        this.minSpins = minSpins;
+        this.maxSpins = maxSpins;
+        this.limit = minSpins;
+    }
+
+    public void backoff() {
+        int spins = ThreadLocalRandom.current().nextInt(limit) + 1;
+        for (int i = 0; i < spins; i++) {
+            Thread.onSpinWait();
+        }
+        limit = Math.min(maxSpins, limit << 1);
+    }
+
+    public void reset() {
+        limit = minSpins;
+    }
+}
@@ -0,0 +1,274 @@
+package explicitlock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// BRAVO (biased locking for reader-writer locks) over a ReentrantReadWriteLock.
+// while the lock is read-biased a reader publishes itself in a slot picked by its thread id
+// instead of CASing the shared AQS state, so readers on different cores touch different cache lines.
+// a writer takes the underlying write lock, revokes the bias and waits for the slots to drain.
+// a writer that times out or is interrupted meanwhile restores the bias and lets the write lock go.
+// revocation is expensive, so the bias stays off for a multiple of the time it took
+// and the next slow-path reader after that turns it back on.
+// a reader whose slot is taken by another thread falls back to the underlying read lock.
+public class BravoReadWriteLock implements ReadWriteLock {
+    // the bias stays off this many times as long as the last revocation took
+    static final int INHIBIT_MULTIPLIER = 9;
+    // one slot per 64-byte line with compressed references
+    static final int SLOT_STRIDE = 16;
+
+    final ReentrantReadWriteLock underlying;
+    final AtomicReferenceArray<Thread> slots;
+    final int mask;
+    volatile boolean readBias = true;
+    volatile long inhibitUntil;
+    final ThreadLocal<ReadHolds> readHolds = ThreadLocal.withInitial(ReadHolds::new);
+
+    private final ReadLock readLock = new ReadLock();
+    private final WriteLock writeLock = new WriteLock();
+
+    // per thread, how many read holds came through the slot and how many through the underlying lock
+    static final class ReadHolds {
+        int slot = -1;
+        int fast;
+        int slow;
+    }
+
+    public BravoReadWriteLock() {
+        this(false);
+    }
+
+    public BravoReadWriteLock(boolean fair) {
+        this(fair, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public BravoReadWriteLock(boolean fair, int readerSlots) {
+        if (readerSlots <= 0) {
+            throw new IllegalArgumentException("readerSlots must be positive");
+        }
+        int n = 1 << -Integer.numberOfLeadingZeros(readerSlots - 1);
+        this.underlying = new ReentrantReadWriteLock(fair);
+        this.slots = new AtomicReferenceArray<>(n * SLOT_STRIDE);
+        this.mask = n - 1;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    public boolean isReadBiased() {
+        return readBias;
+    }
+
+    public boolean isWriteLocked() {
+        return underlying.isWriteLocked();
+    }
+
+    int slotOf(Thread t) {
+        long h = t.getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 32) & mask) * SLOT_STRIDE;
+    }
+
+    boolean tryFastRead(ReadHolds holds) {
+        if (holds.fast > 0) {
+            // already published, a writer draining the slots is waiting for us anyway
+            holds.fast++;
+            return true;
+        }
+        if (!readBias) {
+            return false;
+        }
+        Thread t = Thread.currentThread();
+        int slot = slotOf(t);
+        if (slots.get(slot) != null || !slots.compareAndSet(slot, null, t)) {
+            return false;
+        }
+        // the slot write and this read pair with the writer clearing the bias and then scanning,
+        // either the writer sees our slot or we see the bias gone
+        if (readBias) {
+            holds.slot = slot;
+            holds.fast = 1;
+            return true;
+        }
+        slots.set(slot, null);
+        return false;
+    }
+
+    // after a slow-path read acquisition, bias the lock again once the inhibition is over.
+    // not while this thread holds the write lock, readers would get in beside it
+    void slowReadAcquired(ReadHolds holds) {
+        holds.slow++;
+        if (!readBias && System.nanoTime() - inhibitUntil >= 0 && !underlying.isWriteLockedByCurrentThread()) {
+            readBias = true;
+        }
+    }
+
+    // called holding the underlying write lock. 0 deadline means no timeout.
+    // on a timeout or an interrupt the bias comes back and the write lock is released
+    boolean revokeBias(boolean interruptible, long deadline) throws InterruptedException {
+        if (!readBias) {
+            return true;
+        }
+        readBias = false;
+        long start = System.nanoTime();
+        boolean drained = false;
+        try {
+            for (int i = 0; i < slots.length(); i += SLOT_STRIDE) {
+                int spins = 0;
+                while (slots.get(i) != null) {
+                    if (interruptible && Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (deadline != 0L && deadline - System.nanoTime() <= 0L) {
+                        return false;
+                    }
+                    AbstractSpinLock.spinWait(spins++);
+                }
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                readBias = true;
+                underlying.writeLock().unlock();
+            }
+        }
+        long now = System.nanoTime();
+        inhibitUntil = now + (now - start) * INHIBIT_MULTIPLIER;
+        return true;
+    }
+
+    final class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            ReadHolds holds = readHolds.get();
+            if (!tryFastRead(holds)) {
+                underlying.readLock().lock();
+                slowReadAcquired(holds);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            ReadHolds holds = readHolds.get();
+            if (!tryFastRead(holds)) {
+                underlying.readLock().lockInterruptibly();
+                slowReadAcquired(holds);
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            ReadHolds holds = readHolds.get();
+            if (tryFastRead(holds)) {
+                return true;
+            }
+            if (underlying.readLock().tryLock()) {
+                slowReadAcquired(holds);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            ReadHolds holds = readHolds.get();
+            if (tryFastRead(holds)) {
+                return true;
+            }
+            if (underlying.readLock().tryLock(time, unit)) {
+                slowReadAcquired(holds);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            ReadHolds holds = readHolds.get();
+            if (holds.slow > 0) {
+                holds.slow--;
+                underlying.readLock().unlock();
+            } else if (holds.fast > 0) {
+                if (--holds.fast == 0) {
+                    slots.set(holds.slot, null);
+                    holds.slot = -1;
+                }
+            } else {
+                throw new IllegalMonitorStateException();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    final class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            underlying.writeLock().lock();
+            try {
+                revokeBias(false, 0L);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            underlying.writeLock().lockInterruptibly();
+            revokeBias(true, 0L);
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!underlying.writeLock().tryLock()) {
+                return false;
+            }
+            try {
+                // a deadline already passed, so the first reader still in a slot fails it
+                return revokeBias(false, System.nanoTime() | 1L);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = (System.nanoTime() + unit.toNanos(time)) | 1L;
+            if (!underlying.writeLock().tryLock(time, unit)) {
+                return false;
+            }
+            return revokeBias(true, deadline);
+        }
+
+        @Override
+        public void unlock() {
+            underlying.writeLock().unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return underlying.writeLock().newCondition();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + (readBias ? "[Read biased]" : "[Not biased]") + underlying;
+    }
+}
@@ -0,0 +1,83 @@
+package explicitlock;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// CLH queue lock: a waiter enqueues its node and spins on its predecessor's node,
+// so every waiter watches a different cache line and the lock is handed over in FIFO order.
+// on unlock the thread takes over its predecessor's node for its next acquisition.
+// lockInterruptibly and timed tryLock cannot leave the queue once in it, they poll
+// tryLock instead and only get in when nobody is queued.
+public class ClhSpinLock extends AbstractSpinLock {
+    static final class Node {
+        volatile boolean locked;
+    }
+
+    private final AtomicReference<Node> tail = new AtomicReference<>(new Node());
+    private final ThreadLocal<Node> myNode = ThreadLocal.withInitial(Node::new);
+    private volatile Thread owner;
+    // only touched by the owner
+    private Node ownerNode;
+    private Node ownerPred;
+
+    @Override
+    public void lock() {
+        Node node = myNode.get();
+        node.locked = true;
+        Node pred = tail.getAndSet(node);
+        int spins = 0;
+        while (pred.locked) {
+            spinWait(spins++);
+        }
+        acquired(node, pred);
+    }
+
+    @Override
+    public boolean tryLock() {
+        Node pred = tail.get();
+        if (pred.locked) {
+            return false;
+        }
+        Node node = myNode.get();
+        node.locked = true;
+        if (tail.compareAndSet(pred, node)) {
+            // nodes are recycled, so the tail may have gone pred -> ... -> pred since we
+            // read it and pred may be locked again by its new user. we are queued behind
+            // it now and must wait our turn like lock() does, this only spins in that race
+            int spins = 0;
+            while (pred.locked) {
+                spinWait(spins++);
+            }
+            acquired(node, pred);
+            return true;
+        }
+        node.locked = false;
+        return false;
+    }
+
+    private void acquired(Node node, Node pred) {
+        owner = Thread.currentThread();
+        ownerNode = node;
+        ownerPred = pred;
+    }
+
+    @Override
+    boolean release() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        Node node = ownerNode;
+        Node pred = ownerPred;
+        ownerNode = null;
+        ownerPred = null;
+        owner = null;
+        node.locked = false;
+        // our node now belongs to the successor, recycle the predecessor's
+        myNode.set(pred);
+        return true;
+    }
+
+    @Override
+    boolean isHeldByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+}
@@ -0,0 +1,114 @@
+package explicitlock;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+// hammers the lazy-load caches with many threads and checks that
+// no thread wedges, every key is loaded exactly once and no value is lost
+public class LazyLoadCacheStressDemo {
+    static final int THREADS = 128;
+    static final int KEYS = 10000;
+    static final int TURNS = 200000;
+    static final long TIMEOUT_SECONDS = 60;
+    static ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : THREADS;
+        boolean ok = true;
+
+        AtomicIntegerArray stampedLoads = new AtomicIntegerArray(KEYS);
+        StampedLockLazyLoadCache<Integer, String> stamped = new StampedLockLazyLoadCache<Integer, String>() {
+            @Override
+            String loadFromDatabase(Integer key) {
+                stampedLoads.incrementAndGet(key);
+                return "value-" + key;
+            }
+        };
+        System.out.println("StampedLockLazyLoadCache, " + threads + " threads:");
+        ok &= stress(threads, stamped::get, stampedLoads, () -> stamped.cache.size());
+
+        AtomicIntegerArray rwLoads = new AtomicIntegerArray(KEYS);
+        ReadWriteLockLazyLoadCache<Integer, String> rw = new ReadWriteLockLazyLoadCache<Integer, String>() {
+            @Override
+            String loadFromDatabase(Integer key) {
+                rwLoads.incrementAndGet(key);
+                return "value-" + key;
+            }
+        };
+        System.out.println("ReadWriteLockLazyLoadCache, " + threads + " threads:");
+        ok &= stress(threads, rw::get, rwLoads, () -> rw.cache.size());
+
+        System.exit(ok ? 0 : 1);
+    }
+
+    static boolean stress(int threads, IntFunction<String> get, AtomicIntegerArray loads,
+                          IntSupplier size) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(threads);
+        AtomicLong wrongValues = new AtomicLong();
+        for (int i = 0; i < threads; i++) {
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < TURNS; j++) {
+                        int key = random.nextInt(KEYS);
+                        if (!("value-" + key).equals(get.apply(key))) {
+                            wrongValues.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        long begin = System.currentTimeMillis();
+        start.countDown();
+        boolean finished = latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        float time = (System.currentTimeMillis() - begin) / 1000F;
+        pool.shutdownNow();
+
+        if (!finished) {
+            // StampedLock is not an ownable synchronizer, findDeadlockedThreads
+            // cannot see it, so dump the stacks of whoever is still running
+            System.out.println("  timed out after " + TIMEOUT_SECONDS + "s, threads may be wedged:");
+            for (ThreadInfo info : threadMXBean.dumpAllThreads(false, false)) {
+                if (info.getThreadName().startsWith("pool-")) {
+                    System.out.print("  " + info);
+                }
+            }
+            return false;
+        }
+
+        int duplicated = 0;
+        int loaded = 0;
+        for (int key = 0; key < KEYS; key++) {
+            int n = loads.get(key);
+            if (n > 0) {
+                loaded++;
+            }
+            if (n > 1) {
+                duplicated++;
+            }
+        }
+        int cached = size.getAsInt();
+        System.out.println("  execution time: " + time);
+        System.out.println("  wrong values: " + wrongValues.get());
+        System.out.println("  keys loaded more than once: " + duplicated);
+        System.out.println("  keys loaded: " + loaded + ", keys cached: " + cached);
+        return wrongValues.get() == 0 && duplicated == 0 && loaded == cached;
+    }
+}
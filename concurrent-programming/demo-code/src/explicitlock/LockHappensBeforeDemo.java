@@ -1,14 +1,16 @@
 package explicitlock;
 
+import threadpool.AdaptiveThreadPoolExecutor;
+
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class LockHappensBeforeDemo {
     final static Lock lock = new ReentrantLock();
-    final static ExecutorService pool = Executors.newFixedThreadPool(1000);
+    // sized from the tasks' measured wait/compute ratio, at most the 1000 it used to be fixed at
+    final static ExecutorService pool = new AdaptiveThreadPoolExecutor(1, 1000);
     static volatile int value = 0;
 
     public static void main(String[] args) {
@@ -20,16 +22,16 @@ public class LockHappensBeforeDemo {
                     value ++;
                 } finally {
                     lock.unlock();
+                    latch.countDown();
                 }
             });
-            latch.countDown();
         }
-        pool.shutdown();
         try {
             latch.await();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        pool.shutdown();
         System.out.println("result:" + value);
     }
 }
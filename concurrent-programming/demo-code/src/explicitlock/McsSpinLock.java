@@ -0,0 +1,82 @@
+package explicitlock;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// MCS queue lock: a waiter links its node behind the tail and spins on its own node,
+// the holder hands the lock over by clearing its successor's flag.
+// unlike CLH a waiter spins on memory it owns, which also holds on NUMA machines.
+// lockInterruptibly and timed tryLock cannot leave the queue once in it, they poll
+// tryLock instead and only get in when nobody is queued.
+public class McsSpinLock extends AbstractSpinLock {
+    static final class Node {
+        volatile boolean locked;
+        volatile Node next;
+    }
+
+    private final AtomicReference<Node> tail = new AtomicReference<>();
+    private final ThreadLocal<Node> myNode = ThreadLocal.withInitial(Node::new);
+    private volatile Thread owner;
+    // only touched by the owner
+    private Node ownerNode;
+
+    @Override
+    public void lock() {
+        Node node = myNode.get();
+        node.next = null;
+        Node pred = tail.getAndSet(node);
+        if (pred != null) {
+            node.locked = true;
+            pred.next = node;
+            int spins = 0;
+            while (node.locked) {
+                spinWait(spins++);
+            }
+        }
+        owner = Thread.currentThread();
+        ownerNode = node;
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (tail.get() != null) {
+            return false;
+        }
+        Node node = myNode.get();
+        node.next = null;
+        node.locked = false;
+        if (tail.compareAndSet(null, node)) {
+            owner = Thread.currentThread();
+            ownerNode = node;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    boolean release() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        Node node = ownerNode;
+        ownerNode = null;
+        owner = null;
+        Node next = node.next;
+        if (next == null) {
+            if (tail.compareAndSet(node, null)) {
+                return true;
+            }
+            // a successor swapped the tail but has not linked itself yet
+            int spins = 0;
+            while ((next = node.next) == null) {
+                spinWait(spins++);
+            }
+        }
+        next.locked = false;
+        return true;
+    }
+
+    @Override
+    boolean isHeldByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+}
@@ -1,41 +1,244 @@
 package explicitlock;
 
+import cache.CacheStats;
+import cache.SingleFlight;
+import cache.StatsCounter;
+import cache.TimerWheel;
+
+import javax.management.ObjectName;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 abstract public class ReadWriteLockLazyLoadCache<K,V> {
-    final Map<K,V> cache = new HashMap<>();
-    final ReentrantReadWriteLock rwlock = new ReentrantReadWriteLock();
-    final Lock rlock = rwlock.readLock();
-    final Lock wlock = rwlock.writeLock();
+    static final int WHEEL_BUCKETS = 256;
+    static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final long MIN_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    final Map<K, Entry<K,V>> cache = new HashMap<>();
+    final ReadWriteLock rwlock;
+    final Lock rlock;
+    final Lock wlock;
+    final SingleFlight<K,V> loads = new SingleFlight<>();
+    final Function<K,V> loader = this::loadAndCache;
+    final StatsCounter statsCounter = new StatsCounter();
+
+    final long expireAfterWriteNanos;
+    final long refreshAfterWriteNanos;
+    final Executor refreshExecutor;
+    // guarded by wlock
+    final TimerWheel<Entry<K,V>> wheel;
+    final Consumer<Entry<K,V>> expirer = this::expire;
+
+    ReadWriteLockLazyLoadCache() {
+        this(0, 0, TimeUnit.NANOSECONDS, ForkJoinPool.commonPool());
+    }
+
+    // 0 disables expiry or refresh
+    ReadWriteLockLazyLoadCache(long expireAfterWrite, long refreshAfterWrite, TimeUnit unit, Executor refreshExecutor) {
+        this(new ReentrantReadWriteLock(), expireAfterWrite, refreshAfterWrite, unit, refreshExecutor);
+    }
+
+    // e.g. a BravoReadWriteLock for read-mostly caches
+    ReadWriteLockLazyLoadCache(ReadWriteLock rwlock, long expireAfterWrite, long refreshAfterWrite, TimeUnit unit,
+                               Executor refreshExecutor) {
+        if (expireAfterWrite < 0 || refreshAfterWrite < 0) {
+            throw new IllegalArgumentException("durations must not be negative");
+        }
+        this.rwlock = rwlock;
+        this.rlock = rwlock.readLock();
+        this.wlock = rwlock.writeLock();
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.refreshAfterWriteNanos = unit.toNanos(refreshAfterWrite);
+        this.refreshExecutor = refreshExecutor;
+        long span = expireAfterWriteNanos > 0 ? expireAfterWriteNanos : TimeUnit.SECONDS.toNanos(WHEEL_BUCKETS);
+        this.wheel = new TimerWheel<>(WHEEL_BUCKETS, Math.max(MIN_TICK_NANOS, span / (WHEEL_BUCKETS / 4)));
+    }
 
     V get(K key) {
-        V val = null;
+        Entry<K,V> entry = readCache(key);
+        if (entry != null && entry.value != null) {
+            long now = System.nanoTime();
+            if (!entry.isExpired(now)) {
+                // in the refresh window the old value is served
+                // while the new one is loaded in the background
+                if (refreshAfterWriteNanos > 0 && now - entry.refreshTime >= 0) {
+                    refreshAsync(entry);
+                }
+                statsCounter.recordHit();
+                return entry.value;
+            }
+        }
+        // cache miss or expired
+        statsCounter.recordMiss();
+        // one load per key, concurrent misses on the same key wait for it
+        return loads.load(key, loader);
+    }
+
+    Entry<K,V> readCache(K key) {
         rlock.lock();
         try {
-            val = cache.get(key);
+            return cache.get(key);
         } finally {
             rlock.unlock();
         }
+    }
+
+    V loadAndCache(K key) {
+        // double check, a load for this key may have just finished
+        Entry<K,V> entry = readCache(key);
+        if (entry != null && entry.value != null && !entry.isExpired(System.nanoTime())) {
+            return entry.value;
+        }
+        // load without any lock, hits and other keys go on meanwhile
+        V val = timedLoad(key);
+
+        lockWrite();
+        try {
+            store(key, val);
+        } finally {
+            wlock.unlock();
+        }
+        return val;
+    }
+
+    // must hold wlock
+    void store(K key, V val) {
+        long now = System.nanoTime();
+        Entry<K,V> entry = new Entry<>(key, val, now, expireAfterWriteNanos(key, val));
+        entry.refreshTime = now + refreshAfterWriteNanos;
+        Entry<K,V> old = cache.put(key, entry);
+        if (old != null) {
+            wheel.deschedule(old);
+        }
+        if (entry.expires) {
+            wheel.schedule(entry, entry.expireTime);
+        }
+        // piggyback expiry on the write, only the passed ticks are visited
+        wheel.advance(now, expirer);
+    }
+
+    void expire(Entry<K,V> entry) {
+        if (cache.get(entry.key) == entry) {
+            cache.remove(entry.key);
+            statsCounter.recordEviction();
+        }
+    }
 
-        if (val != null) {
+    V timedLoad(K key) {
+        long start = System.nanoTime();
+        try {
+            V val = loadFromDatabase(key);
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
             return val;
+        } catch (RuntimeException | Error e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
         }
+    }
 
+    void lockWrite() {
+        if (wlock.tryLock()) {
+            statsCounter.recordWriteLockWait(0);
+            return;
+        }
+        long start = System.nanoTime();
         wlock.lock();
+        statsCounter.recordWriteLockWait(System.nanoTime() - start);
+    }
+
+    void refreshAsync(Entry<K,V> entry) {
+        if (!Entry.REFRESHING.compareAndSet(entry, 0, 1)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(entry));
+        } catch (RejectedExecutionException e) {
+            entry.refreshing = 0;
+        }
+    }
+
+    void refresh(Entry<K,V> entry) {
+        V val;
+        try {
+            val = timedLoad(entry.key);
+        } catch (RuntimeException e) {
+            // keep serving the old value, timedLoad recorded the failure.
+            // back off so an outage does not turn every read into a reload
+            long backoff = Math.min(refreshAfterWriteNanos, MIN_RETRY_NANOS << Math.min(entry.refreshFailures++, 20));
+            entry.refreshTime = System.nanoTime() + backoff;
+            entry.refreshing = 0;
+            return;
+        }
+        lockWrite();
         try {
-            val = cache.get(key);
-            if (val != null) {
-                return val;
+            // a newer value or an invalidation wins over the refresh
+            if (cache.get(entry.key) == entry) {
+                store(entry.key, val);
             }
-            val = loadFromDatabase(key);
-            cache.put(key, val);
         } finally {
             wlock.unlock();
         }
-        return val;
     }
+
+    // drops the expired entries without waiting for the next write
+    void cleanUp() {
+        lockWrite();
+        try {
+            wheel.advance(System.nanoTime(), expirer);
+        } finally {
+            wlock.unlock();
+        }
+    }
+
+    CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    ObjectName registerMBean(String name) {
+        return statsCounter.registerMBean(name);
+    }
+
+    // per-entry time to live, 0 means the entry never expires
+    long expireAfterWriteNanos(K key, V value) {
+        return expireAfterWriteNanos;
+    }
+
     abstract V loadFromDatabase(K key);
+
+    static final class Entry<K,V> extends TimerWheel.Timer {
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Entry> REFRESHING = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "refreshing");
+
+        final K key;
+        final V value;
+        final long writeTime;
+        final long expireTime;
+        final boolean expires;
+        volatile int refreshing;
+        // written before refreshing is cleared, only the refresher touches the failures
+        volatile long refreshTime;
+        int refreshFailures;
+
+        Entry(K key, V value, long writeTime, long timeToLive) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+            this.expires = timeToLive > 0;
+            this.expireTime = writeTime + timeToLive;
+        }
+
+        boolean isExpired(long now) {
+            return expires && now - expireTime >= 0;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package explicitlock;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import static java.lang.Thread.sleep;
+
+// ReadWriteLockDemo's guarded map under read/write mixes of 100/0, 99/1 and 90/10,
+// every thread picks a read or a write at random for each operation.
+// the thread counts come from the arguments, to see how reader throughput scales
+public class ReadWriteLockMixDemo {
+    static final int[] THREADS = {1, 2, 4, 8};
+    static final long DURATION_MILLIS = 1000;
+    static final int KEYS = 1024;
+    static final int[] WRITE_PERCENTS = {0, 1, 10};
+
+    static volatile boolean running;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = THREADS;
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Map<String, Supplier<ReadWriteLock>> locks = new LinkedHashMap<>();
+        locks.put("ReentrantReadWriteLock", ReentrantReadWriteLock::new);
+        locks.put("StampedLock", () -> new StampedLock().asReadWriteLock());
+        locks.put("BravoReadWriteLock", BravoReadWriteLock::new);
+        locks.put("StripedReadWriteLock", StripedReadWriteLock::new);
+
+        System.out.println(DURATION_MILLIS + "ms per run");
+        for (int writePercent : WRITE_PERCENTS) {
+            for (int threads : threadCounts) {
+                System.out.println("reads/writes " + (100 - writePercent) + "/" + writePercent + ", " + threads + " threads");
+                for (Map.Entry<String, Supplier<ReadWriteLock>> e : locks.entrySet()) {
+                    run(e.getKey(), e.getValue().get(), threads, writePercent);
+                }
+            }
+        }
+    }
+
+    static void run(String name, ReadWriteLock lock, int threads, int writePercent) throws InterruptedException {
+        Map<Integer, String> map = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            map.put(i, String.valueOf(i));
+        }
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        running = true;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long r = 0;
+                long w = 0;
+                ready.countDown();
+                while (running) {
+                    int key = random.nextInt(KEYS);
+                    if (random.nextInt(100) < writePercent) {
+                        lock.writeLock().lock();
+                        try {
+                            map.put(key, "v" + key);
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                        w++;
+                    } else {
+                        lock.readLock().lock();
+                        try {
+                            if (map.get(key) == null) {
+                                throw new IllegalStateException("lost key " + key);
+                            }
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                        r++;
+                    }
+                }
+                reads.add(r);
+                writes.add(w);
+                done.countDown();
+            });
+        }
+        ready.await();
+        long start = System.nanoTime();
+        sleep(DURATION_MILLIS);
+        running = false;
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.printf("  %-24s reads %,14.0f/s   writes %,12.0f/s%n",
+            name, reads.sum() * 1e9 / elapsed, writes.sum() * 1e9 / elapsed);
+    }
+}
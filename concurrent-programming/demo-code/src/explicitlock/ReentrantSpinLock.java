@@ -1,32 +1,56 @@
 package explicitlock;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
 
-public abstract class ReentrantSpinLock implements Lock {
-    private static final AtomicReference<Thread> owner = new AtomicReference<>();
+public class ReentrantSpinLock extends AbstractSpinLock {
+    private final AtomicReference<Thread> owner = new AtomicReference<>();
+    // only touched by the owner
     private int count = 0;
 
     @Override
-    public void lock() {
+    public boolean tryLock() {
         Thread t = Thread.currentThread();
-        if (t == owner.get()) {
+        Thread current = owner.get();
+        if (current == t) {
             count ++;
-            return;
-        }
-        while (owner.compareAndSet(null, t)) {
-            Thread.yield();
+            return true;
         }
+        return current == null && owner.compareAndSet(null, t);
     }
 
     @Override
-    public void unlock() {
+    boolean release() {
         Thread t = Thread.currentThread();
-        if (t == owner.get()) {
-            if (count > 0) {
-                count --;
-            } else {
-                owner.set(null);
-            }
+        if (t != owner.get()) {
+            throw new IllegalMonitorStateException();
+        }
+        if (count > 0) {
+            count --;
+            return false;
         }
+        owner.set(null);
+        return true;
+    }
+
+    @Override
+    boolean isHeldByCurrentThread() {
+        return owner.get() == Thread.currentThread();
+    }
+
+    public int getHoldCount() {
+        return isHeldByCurrentThread() ? count + 1 : 0;
+    }
+
+    @Override
+    int fullyRelease() {
+        int holds = count + 1;
+        count = 0;
+        unlock();
+        return holds;
+    }
+
+    @Override
+    void reacquire(int holds) {
+        lock();
+        count = holds - 1;
     }
 }
@@ -0,0 +1,128 @@
+package explicitlock;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+
+// condition queue for the spin locks, only touched while holding the lock
+final class SpinCondition implements Condition {
+    final AbstractSpinLock lock;
+    final ArrayDeque<Node> queue = new ArrayDeque<>();
+
+    SpinCondition(AbstractSpinLock lock) {
+        this.lock = lock;
+    }
+
+    @Override
+    public void await() throws InterruptedException {
+        awaitNanos(true, 0L);
+    }
+
+    @Override
+    public void awaitUninterruptibly() {
+        try {
+            awaitNanos(false, 0L);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public long awaitNanos(long nanosTimeout) throws InterruptedException {
+        if (nanosTimeout <= 0L) {
+            // still has to release and reacquire like every await
+            nanosTimeout = 1L;
+        }
+        long deadline = (System.nanoTime() + nanosTimeout) | 1L;
+        awaitNanos(true, deadline);
+        return deadline - System.nanoTime();
+    }
+
+    @Override
+    public boolean await(long time, TimeUnit unit) throws InterruptedException {
+        return awaitNanos(unit.toNanos(time)) > 0L;
+    }
+
+    @Override
+    public boolean awaitUntil(Date deadline) throws InterruptedException {
+        return awaitNanos(TimeUnit.MILLISECONDS.toNanos(deadline.getTime() - System.currentTimeMillis())) > 0L;
+    }
+
+    // deadline 0 waits until signalled
+    void awaitNanos(boolean interruptible, long deadline) throws InterruptedException {
+        if (interruptible && Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (!lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        Node node = new Node(Thread.currentThread());
+        queue.addLast(node);
+        int holds = lock.fullyRelease();
+        boolean interrupted = false;
+        while (!node.signalled) {
+            if (deadline == 0L) {
+                LockSupport.park(this);
+            } else {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (Thread.interrupted()) {
+                interrupted = true;
+                if (interruptible) {
+                    break;
+                }
+            }
+        }
+        lock.reacquire(holds);
+        if (!node.signalled) {
+            // timed out or interrupted, nobody dequeued us
+            queue.remove(node);
+            if (interrupted && interruptible) {
+                throw new InterruptedException();
+            }
+        }
+        if (interrupted) {
+            // signalled anyway, keep the signal and the interrupt status
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void signal() {
+        if (!lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        Node node = queue.pollFirst();
+        if (node != null) {
+            node.signalled = true;
+            LockSupport.unpark(node.thread);
+        }
+    }
+
+    @Override
+    public void signalAll() {
+        if (!lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        Node node;
+        while ((node = queue.pollFirst()) != null) {
+            node.signalled = true;
+            LockSupport.unpark(node.thread);
+        }
+    }
+
+    static final class Node {
+        final Thread thread;
+        volatile boolean signalled;
+
+        Node(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
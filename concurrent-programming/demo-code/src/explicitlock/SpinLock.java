@@ -1,24 +1,27 @@
 package explicitlock;
 
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
 
-public abstract class SpinLock implements Lock {
-    private static final AtomicReference<Thread> onwer = new AtomicReference<>();
+public class SpinLock extends AbstractSpinLock {
+    private final AtomicReference<Thread> owner = new AtomicReference<>();
 
     @Override
-    public void lock() {
-        Thread t = Thread.currentThread();
-        while (onwer.compareAndSet(null, t)) {
-            Thread.yield();
-        }
+    public boolean tryLock() {
+        // test before test-and-set, a failing CAS still takes the cache line exclusive
+        return owner.get() == null && owner.compareAndSet(null, Thread.currentThread());
     }
 
     @Override
-    public void unlock() {
-        Thread t = Thread.currentThread();
-        if (t == onwer.get()) {
-            onwer.set(null);
+    boolean release() {
+        if (owner.get() != Thread.currentThread()) {
+            throw new IllegalMonitorStateException();
         }
+        owner.set(null);
+        return true;
+    }
+
+    @Override
+    boolean isHeldByCurrentThread() {
+        return owner.get() == Thread.currentThread();
     }
 }
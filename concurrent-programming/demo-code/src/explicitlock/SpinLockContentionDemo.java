@@ -0,0 +1,102 @@
+package explicitlock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.Thread.sleep;
+
+// every thread increments a shared counter under the lock for a fixed time.
+// throughput is the total number of acquisitions per second, fairness is the
+// spread of acquisitions between the threads (min/max and coefficient of variation)
+public class SpinLockContentionDemo {
+    static final int THREADS = 32;
+    static final long DURATION_MILLIS = 2000;
+
+    static volatile boolean running;
+    static long value = 0;
+
+    interface CriticalSection {
+        void increment();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : THREADS;
+        System.out.println(threads + " threads, " + DURATION_MILLIS + "ms per lock");
+
+        Object monitor = new Object();
+        run("synchronized", threads, () -> {
+            synchronized (monitor) {
+                value++;
+            }
+        });
+        run("ReentrantLock", threads, withLock(new ReentrantLock()));
+        run("ReentrantLock(fair)", threads, withLock(new ReentrantLock(true)));
+        run("SpinLock", threads, withLock(new SpinLock()));
+        run("ReentrantSpinLock", threads, withLock(new ReentrantSpinLock()));
+        run("TicketSpinLock", threads, withLock(new TicketSpinLock()));
+        run("ClhSpinLock", threads, withLock(new ClhSpinLock()));
+        run("McsSpinLock", threads, withLock(new McsSpinLock()));
+    }
+
+    static CriticalSection withLock(Lock lock) {
+        return () -> {
+            lock.lock();
+            try {
+                value++;
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    static void run(String name, int threads, CriticalSection section) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long[] acquisitions = new long[threads];
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        value = 0;
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            pool.submit(() -> {
+                ready.countDown();
+                long n = 0;
+                while (running) {
+                    section.increment();
+                    n++;
+                }
+                acquisitions[id] = n;
+                done.countDown();
+            });
+        }
+        ready.await();
+        long start = System.nanoTime();
+        sleep(DURATION_MILLIS);
+        running = false;
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (long n : acquisitions) {
+            total += n;
+            min = Math.min(min, n);
+            max = Math.max(max, n);
+        }
+        double mean = (double) total / threads;
+        double variance = 0;
+        for (long n : acquisitions) {
+            variance += (n - mean) * (n - mean);
+        }
+        double cv = mean == 0 ? 0 : Math.sqrt(variance / threads) / mean;
+        System.out.printf("%-22s %,14.0f ops/s   min %,12d   max %,12d   cv %.3f   %s%n",
+            name, total * 1e9 / elapsed, min, max, cv, value == total ? "" : "LOST UPDATES");
+    }
+}
@@ -0,0 +1,66 @@
+package explicitlock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import static java.lang.Thread.sleep;
+
+public class SpinLockDemo {
+    static final Lock lock = new ReentrantSpinLock();
+    static final Condition condition = lock.newCondition();
+    static int value = 0;
+
+    static void add(int i) {
+        lock.lock();
+        try {
+            // reentrant
+            lock.lock();
+            try {
+                value += i;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(10);
+        CountDownLatch latch = new CountDownLatch(100000);
+        for (int i = 0; i < 100000; i++) {
+            pool.submit(() -> {
+                add(1);
+                latch.countDown();
+            });
+        }
+        latch.await();
+        System.out.println("result: " + value);
+
+        Thread waitThread = new Thread(() -> {
+            lock.lock();
+            try {
+                System.out.println("I am WaitThread, start waiting...");
+                condition.await();
+                System.out.println("I am WaitThread, I was notified!");
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                lock.unlock();
+            }
+        });
+        waitThread.start();
+        sleep(500);
+        lock.lock();
+        try {
+            condition.signal();
+        } finally {
+            lock.unlock();
+        }
+        waitThread.join();
+        pool.shutdown();
+    }
+}
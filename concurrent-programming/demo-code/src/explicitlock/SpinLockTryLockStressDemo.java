@@ -0,0 +1,96 @@
+package explicitlock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import static java.lang.Thread.sleep;
+
+// mixes lock/unlock with tryLock, timed tryLock and lockInterruptibly callers on one lock.
+// every acquisition checks it is alone in the critical section and bumps a plain counter,
+// a lock that lets two owners in shows up as overlaps or as lost increments
+public class SpinLockTryLockStressDemo {
+    static final int THREADS = 8;
+    static final long DURATION_MILLIS = 2000;
+
+    static volatile boolean running;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : THREADS;
+        System.out.println(threads + " threads, " + DURATION_MILLIS + "ms per lock");
+
+        boolean ok = run("SpinLock", threads, new SpinLock());
+        ok &= run("ReentrantSpinLock", threads, new ReentrantSpinLock());
+        ok &= run("TicketSpinLock", threads, new TicketSpinLock());
+        ok &= run("ClhSpinLock", threads, new ClhSpinLock());
+        ok &= run("McsSpinLock", threads, new McsSpinLock());
+        System.out.println(ok ? "all locks held" : "MUTUAL EXCLUSION BROKEN");
+    }
+
+    static boolean run(String name, int threads, Lock lock) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicLong overlaps = new AtomicLong();
+        AtomicLong acquisitions = new AtomicLong();
+        long[] value = new long[1];
+        CountDownLatch done = new CountDownLatch(threads);
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long n = 0;
+                try {
+                    while (running) {
+                        if (!acquire(lock, random.nextInt(4))) {
+                            continue;
+                        }
+                        try {
+                            if (inside.incrementAndGet() != 1) {
+                                overlaps.incrementAndGet();
+                            }
+                            value[0]++;
+                            inside.decrementAndGet();
+                        } finally {
+                            lock.unlock();
+                        }
+                        n++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    acquisitions.addAndGet(n);
+                    done.countDown();
+                }
+            });
+        }
+        sleep(DURATION_MILLIS);
+        running = false;
+        done.await();
+        pool.shutdown();
+
+        long lost = acquisitions.get() - value[0];
+        System.out.printf("%-18s acquisitions=%,d overlaps=%d lost=%d%n",
+            name, acquisitions.get(), overlaps.get(), lost);
+        return overlaps.get() == 0 && lost == 0;
+    }
+
+    static boolean acquire(Lock lock, int mode) throws InterruptedException {
+        switch (mode) {
+            case 0:
+                lock.lock();
+                return true;
+            case 1:
+                return lock.tryLock();
+            case 2:
+                return lock.tryLock(50, TimeUnit.MICROSECONDS);
+            default:
+                lock.lockInterruptibly();
+                return true;
+        }
+    }
+}
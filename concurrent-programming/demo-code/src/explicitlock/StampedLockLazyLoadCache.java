@@ -1,50 +1,72 @@
 package explicitlock;
 
+import cache.BatchLoader;
+import cache.CacheStats;
+import cache.SingleFlight;
+import cache.StatsCounter;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
 
 abstract public class StampedLockLazyLoadCache <K,V> {
     final StampedLock stampedLock = new StampedLock();
     final Map<K,V> cache = new HashMap<>();
+    final SingleFlight<K,V> loads = new SingleFlight<>();
+    final Function<K,V> loader = this::loadAndCache;
+    final BatchLoader<K,V> batches;
+    final Function<List<K>, Map<K,V>> batchLoader;
+    final StatsCounter statsCounter = new StatsCounter();
+
+    StampedLockLazyLoadCache() {
+        this(1, TimeUnit.MILLISECONDS, 1000);
+    }
+
+    StampedLockLazyLoadCache(long batchWindow, TimeUnit unit, int maxBatchSize) {
+        batches = new BatchLoader<>(this::loadAllAndCache, batchWindow, unit, maxBatchSize);
+        batchLoader = batches::loadAll;
+    }
 
     V get(K key) {
         V val;
         long rstamp;
-        long wstamp;
         // try optimistic read
         // nolock
         rstamp = stampedLock.tryOptimisticRead();
         if (rstamp != 0) {
-            val = cache.get(key);
-            if (val != null) {
-                // validate cache data
-                if (!stampedLock.validate(rstamp)) {
-                    // cache data is dirty
-                    // pessmistic read cache or load from database
-                    val = pessmisticReadCacheOrLoadFromDatabase(key);
-                }
-                return val;
-            }
-            // cache miss
-            // lock write lock
-            wstamp = stampedLock.writeLock();
             try {
-                // double check
                 val = cache.get(key);
-                if (val != null)
+            } catch (Throwable e) {
+                // HashMap is not thread-safe, a writer may be resizing it under us.
+                // a torn read can throw anything, an Error too, say a StackOverflowError
+                // walking a torn tree bin. it only counts if no writer came in between
+                if (stampedLock.validate(rstamp))
+                    throw e;
+                statsCounter.recordOptimisticReadFailure();
+                return pessmisticReadCacheOrLoadFromDatabase(key);
+            }
+            // validate cache data, a miss may be as dirty as a hit
+            if (stampedLock.validate(rstamp)) {
+                if (val != null) {
+                    statsCounter.recordHit();
                     return val;
+                }
                 // cache miss
-                // load from database
-                val = loadFromDatabase(key);
-
-                // update cache
-                cache.put(key, val);
-                return val;
-            } finally {
-                stampedLock.unlockWrite(wstamp);
+                // one load per key, concurrent misses on the same key wait for it
+                statsCounter.recordMiss();
+                return loads.load(key, loader);
             }
+            // cache data is dirty
         }
+        // pessmistic read cache or load from database
+        statsCounter.recordOptimisticReadFailure();
         return pessmisticReadCacheOrLoadFromDatabase(key);
     }
 
@@ -53,31 +75,190 @@ abstract public class StampedLockLazyLoadCache <K,V> {
         long rstamp = stampedLock.readLock();
         try {
             val = cache.get(key);
-            if (val != null)
-                return val;
-            // cache miss
-            // lock write lock
-            long wstamp = stampedLock.writeLock();
-            try {
-                // double check
-                val = cache.get(key);
-                if (val != null)
-                    return val;
+        } finally {
+            stampedLock.unlockRead(rstamp);
+        }
+        if (val != null) {
+            statsCounter.recordHit();
+            return val;
+        }
+        // cache miss
+        // the read lock is already released, loads never run under a lock
+        statsCounter.recordMiss();
+        return loads.load(key, loader);
+    }
 
-                // cache miss
-                // load from database
-                val = loadFromDatabase(key);
+    V loadAndCache(K key) {
+        V val;
+        long rstamp = stampedLock.readLock();
+        try {
+            // double check
+            val = cache.get(key);
+        } finally {
+            stampedLock.unlockRead(rstamp);
+        }
+        if (val != null)
+            return val;
 
-                // update cache
-                cache.put(key, val);
-                return val;
+        // load from database
+        val = timedLoad(key);
+        // not found, nothing to cache
+        if (val == null)
+            return null;
+
+        // update cache
+        return putIfAbsent(key, val);
+    }
+
+    V putIfAbsent(K key, V val) {
+        long stamp = stampedLock.readLock();
+        try {
+            while (true) {
+                V current = cache.get(key);
+                if (current != null)
+                    return current;
+                // upgrade in place, StampedLock is not reentrant so
+                // calling writeLock() while holding the read stamp would self-deadlock
+                long wstamp = stampedLock.tryConvertToWriteLock(stamp);
+                if (wstamp != 0) {
+                    if (wstamp != stamp)
+                        statsCounter.recordWriteLockWait(0);
+                    stamp = wstamp;
+                    cache.put(key, val);
+                    return val;
+                }
+                // other readers are in, give up the read lock and queue for the write lock,
+                // then check again since someone may have written meanwhile
+                stampedLock.unlockRead(stamp);
+                stamp = writeLock();
+            }
+        } finally {
+            stampedLock.unlock(stamp);
+        }
+    }
+    Map<K,V> getAll(Collection<? extends K> keys) {
+        Map<K,V> result = new HashMap<>();
+        List<K> misses = new ArrayList<>();
+        // resolve all hits under one optimistic read
+        long rstamp = stampedLock.tryOptimisticRead();
+        boolean valid = false;
+        if (rstamp != 0) {
+            try {
+                readAll(keys, result, misses);
+            } catch (Throwable e) {
+                // as in get(), whatever a torn read threw counts only if no writer came in between
+                if (stampedLock.validate(rstamp))
+                    throw e;
+            }
+            valid = stampedLock.validate(rstamp);
+        }
+        if (!valid) {
+            statsCounter.recordOptimisticReadFailure();
+            // cache data is dirty
+            // pessmistic read
+            result.clear();
+            misses.clear();
+            rstamp = stampedLock.readLock();
+            try {
+                readAll(keys, result, misses);
             } finally {
-                stampedLock.unlock(wstamp);
+                stampedLock.unlockRead(rstamp);
+            }
+        }
+        statsCounter.recordHits(result.size());
+        statsCounter.recordMisses(misses.size());
+        if (!misses.isEmpty()) {
+            // keys already loading by a get() are joined, not loaded again,
+            // the other misses of concurrent callers share one bulk load
+            result.putAll(loads.loadAll(misses, batchLoader));
+        }
+        return result;
+    }
+
+    void readAll(Collection<? extends K> keys, Map<K,V> hits, List<K> misses) {
+        for (K key : keys) {
+            V val = cache.get(key);
+            if (val != null) {
+                hits.put(key, val);
+            } else {
+                misses.add(key);
+            }
+        }
+    }
+
+    Map<K,V> loadAllAndCache(Set<K> keys) {
+        Map<K,V> loaded;
+        long start = System.nanoTime();
+        try {
+            loaded = loadAllFromDatabase(keys);
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
+        } catch (RuntimeException | Error e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        Map<K,V> result = new HashMap<>();
+        long wstamp = writeLock();
+        try {
+            for (Map.Entry<K,V> e : loaded.entrySet()) {
+                // not found, nothing to cache
+                if (e.getValue() == null)
+                    continue;
+                V current = cache.get(e.getKey());
+                if (current == null) {
+                    current = e.getValue();
+                    cache.put(e.getKey(), current);
+                }
+                result.put(e.getKey(), current);
             }
         } finally {
-            stampedLock.unlockRead(rstamp);
+            stampedLock.unlockWrite(wstamp);
+        }
+        return result;
+    }
+
+    V timedLoad(K key) {
+        long start = System.nanoTime();
+        try {
+            V val = loadFromDatabase(key);
+            statsCounter.recordLoadSuccess(System.nanoTime() - start);
+            return val;
+        } catch (RuntimeException | Error e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
         }
     }
+
+    long writeLock() {
+        long wstamp = stampedLock.tryWriteLock();
+        if (wstamp != 0) {
+            statsCounter.recordWriteLockWait(0);
+            return wstamp;
+        }
+        long start = System.nanoTime();
+        wstamp = stampedLock.writeLock();
+        statsCounter.recordWriteLockWait(System.nanoTime() - start);
+        return wstamp;
+    }
+
+    CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    ObjectName registerMBean(String name) {
+        return statsCounter.registerMBean(name);
+    }
+
+    // override when the database is cheaper to query in bulk,
+    // keys missing from the result are treated as not found
+    Map<K,V> loadAllFromDatabase(Set<K> keys) {
+        Map<K,V> result = new HashMap<>();
+        for (K key : keys) {
+            V val = loadFromDatabase(key);
+            if (val != null)
+                result.put(key, val);
+        }
+        return result;
+    }
+
     abstract V loadFromDatabase(K key);
 }
-
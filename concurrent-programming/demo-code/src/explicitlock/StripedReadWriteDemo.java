@@ -0,0 +1,74 @@
+package explicitlock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static java.lang.Thread.sleep;
+
+// SemaphoreReadWriteDemo on StripedReadWriteLock: the three gets run together,
+// each update runs alone, and the gets submitted after the updates wait for them
+public class StripedReadWriteDemo {
+    private final ReadWriteLock lock = new StripedReadWriteLock();
+    volatile int value = 0;
+    int getValue() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            int res = value;
+            sleep(1000);
+            long time = System.currentTimeMillis() - start;
+            System.out.println("get value spent: " + time);
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    void update() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            value ++;
+            sleep(1000);
+            long time = System.currentTimeMillis() - start;
+            System.out.println("update spent: " + time);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        StripedReadWriteDemo demo = new StripedReadWriteDemo();
+        ExecutorService pool = Executors.newCachedThreadPool();
+        for (int i = 0; i < 3; i++) {
+            pool.submit(() -> {
+                try {
+                    System.out.println("get: " + demo.getValue());
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        sleep(100);
+        for (int i = 0; i < 3; i++) {
+            pool.submit(() -> {
+                try {
+                    demo.update();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        sleep(100);
+        for (int i = 0; i < 3; i++) {
+            pool.submit(() -> {
+                try {
+                    System.out.println("get: " + demo.getValue());
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,335 @@
+package explicitlock;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// SemaphoreReadWriteDemo's idea, a reader holds one share and a writer holds all of them,
+// with the shares counted in padded stripes instead of one fair AQS queue:
+// a reader increments the counter of its stripe and checks that no writer is active.
+// writers queue on a Semaphore(1), fair on request, the one that gets it announces itself
+// so new readers back off, then waits for the stripes to drain.
+// readers that backed off for a writer go in before the next writer, so neither side starves.
+// not reentrant, and neither view supports conditions.
+public class StripedReadWriteLock implements ReadWriteLock {
+    // one counter per 64-byte line
+    static final int STRIDE = 8;
+    static final int SPINS_BEFORE_PARK = 1 << 8;
+    static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    final AtomicLongArray readers;
+    final int mask;
+    final Semaphore writers;
+    // guards blockedReaders, signals readers when a writer leaves and writers when blocked readers got in
+    final ReentrantLock gate = new ReentrantLock();
+    final Condition writerGone = gate.newCondition();
+    final Condition readersAdmitted = gate.newCondition();
+    int blockedReaders;
+    volatile Thread writer;
+
+    private final ReadLock readLock = new ReadLock();
+    private final WriteLock writeLock = new WriteLock();
+
+    public StripedReadWriteLock() {
+        this(false);
+    }
+
+    public StripedReadWriteLock(boolean fair) {
+        this(fair, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedReadWriteLock(boolean fair, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        int n = 1 << -Integer.numberOfLeadingZeros(stripes - 1);
+        this.writers = new Semaphore(1, fair);
+        this.readers = new AtomicLongArray(n * STRIDE);
+        this.mask = n - 1;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    public long getReadLockCount() {
+        long sum = 0;
+        for (int i = 0; i < readers.length(); i += STRIDE) {
+            sum += readers.get(i);
+        }
+        return sum;
+    }
+
+    public boolean isWriteLocked() {
+        return writer != null;
+    }
+
+    int stripe() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 32) & mask) * STRIDE;
+    }
+
+    boolean tryFastRead(int stripe) {
+        readers.getAndIncrement(stripe);
+        // pairs with the writer announcing itself and then summing the stripes
+        Thread w = writer;
+        if (w == null) {
+            return true;
+        }
+        readers.getAndDecrement(stripe);
+        LockSupport.unpark(w);
+        return false;
+    }
+
+    // 0 deadline means no timeout
+    boolean acquireRead(boolean interruptible, long deadline) throws InterruptedException {
+        int stripe = stripe();
+        if (tryFastRead(stripe)) {
+            return true;
+        }
+        // most writes are short, wait them out before queueing on the gate
+        for (int spins = 0; spins < SPINS_BEFORE_PARK; ) {
+            if (writer == null) {
+                if (tryFastRead(stripe)) {
+                    return true;
+                }
+            } else {
+                AbstractSpinLock.spinWait(spins++);
+            }
+        }
+        if (interruptible) {
+            gate.lockInterruptibly();
+        } else {
+            gate.lock();
+        }
+        try {
+            blockedReaders++;
+            try {
+                while (writer != null) {
+                    if (deadline == 0L) {
+                        if (interruptible) {
+                            writerGone.await();
+                        } else {
+                            writerGone.awaitUninterruptibly();
+                        }
+                    } else {
+                        long nanos = deadline - System.nanoTime();
+                        if (nanos <= 0L) {
+                            return false;
+                        }
+                        writerGone.awaitNanos(nanos);
+                    }
+                }
+                // the next writer announces itself only after we are counted
+                readers.getAndIncrement(stripe);
+                return true;
+            } finally {
+                if (--blockedReaders == 0) {
+                    readersAdmitted.signalAll();
+                }
+            }
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    void releaseRead() {
+        int stripe = stripe();
+        if (readers.getAndDecrement(stripe) <= 0) {
+            readers.getAndIncrement(stripe);
+            throw new IllegalMonitorStateException();
+        }
+        Thread w = writer;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    boolean acquireWrite(boolean interruptible, long deadline) throws InterruptedException {
+        if (deadline == 0L) {
+            if (interruptible) {
+                writers.acquire();
+            } else {
+                writers.acquireUninterruptibly();
+            }
+        } else if (!writers.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        boolean acquired = false;
+        try {
+            gate.lock();
+            try {
+                // let the readers that waited for the previous writer in first.
+                // a timeout or an interrupt here gives the permit back in the finally below
+                while (blockedReaders > 0) {
+                    if (deadline == 0L) {
+                        if (interruptible) {
+                            readersAdmitted.await();
+                        } else {
+                            readersAdmitted.awaitUninterruptibly();
+                        }
+                    } else {
+                        long nanos = deadline - System.nanoTime();
+                        if (nanos <= 0L) {
+                            return false;
+                        }
+                        readersAdmitted.awaitNanos(nanos);
+                    }
+                }
+                writer = Thread.currentThread();
+            } finally {
+                gate.unlock();
+            }
+            int spins = 0;
+            while (getReadLockCount() != 0) {
+                if (interruptible && Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (deadline != 0L && deadline - System.nanoTime() <= 0L) {
+                    return false;
+                }
+                if (spins < SPINS_BEFORE_PARK) {
+                    AbstractSpinLock.spinWait(spins++);
+                } else {
+                    // departing readers unpark us, the timeout covers a missed wakeup
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+            }
+            acquired = true;
+            return true;
+        } finally {
+            if (!acquired) {
+                releaseWrite();
+            }
+        }
+    }
+
+    void releaseWrite() {
+        gate.lock();
+        try {
+            writer = null;
+            writerGone.signalAll();
+        } finally {
+            gate.unlock();
+        }
+        writers.release();
+    }
+
+    static long deadline(long time, TimeUnit unit) {
+        return (System.nanoTime() + unit.toNanos(time)) | 1L;
+    }
+
+    final class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            try {
+                acquireRead(false, 0L);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            acquireRead(true, 0L);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return tryFastRead(stripe());
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return acquireRead(true, deadline(time, unit));
+        }
+
+        @Override
+        public void unlock() {
+            releaseRead();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    final class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            try {
+                acquireWrite(false, 0L);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquireWrite(true, 0L);
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!writers.tryAcquire()) {
+                return false;
+            }
+            gate.lock();
+            try {
+                if (blockedReaders > 0) {
+                    writers.release();
+                    return false;
+                }
+                writer = Thread.currentThread();
+            } finally {
+                gate.unlock();
+            }
+            if (getReadLockCount() != 0) {
+                releaseWrite();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return acquireWrite(true, deadline(time, unit));
+        }
+
+        @Override
+        public void unlock() {
+            if (writer != Thread.currentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+            releaseWrite();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[Write locks = " + (writer != null ? 1 : 0) + ", Read locks = " + getReadLockCount() + "]";
+    }
+}
@@ -0,0 +1,56 @@
+package explicitlock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// FIFO spin lock: take a ticket, wait until it is served.
+// waiters only read nowServing while they wait, and back off in proportion
+// to their distance from the head of the line.
+// lockInterruptibly and timed tryLock cannot give a ticket back, they poll
+// tryLock instead and only get in when nobody is queued.
+public class TicketSpinLock extends AbstractSpinLock {
+    private final AtomicLong nextTicket = new AtomicLong();
+    private volatile long nowServing = 0;
+    private volatile Thread owner;
+
+    @Override
+    public void lock() {
+        long ticket = nextTicket.getAndIncrement();
+        int spins = 0;
+        long serving;
+        while ((serving = nowServing) != ticket) {
+            if (MULTIPROCESSOR) {
+                for (long i = (ticket - serving) * 16; i > 0; i--) {
+                    Thread.onSpinWait();
+                }
+            }
+            spinWait(spins++);
+        }
+        owner = Thread.currentThread();
+    }
+
+    @Override
+    public boolean tryLock() {
+        long serving = nowServing;
+        if (nextTicket.compareAndSet(serving, serving + 1)) {
+            owner = Thread.currentThread();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    boolean release() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        owner = null;
+        // only the holder writes nowServing
+        nowServing = nowServing + 1;
+        return true;
+    }
+
+    @Override
+    boolean isHeldByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+}
@@ -0,0 +1,153 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongBinaryOperator;
+
+// the machinery shared by AdaptiveCounter and AdaptiveDoubleAccumulator, along the lines of
+// java.util.concurrent.atomic.Striped64: updates CAS a single base value until a CAS fails,
+// then go to a table of padded cells indexed by a per-thread probe. the table starts with 2 cells
+// and doubles on repeated collisions up to the number of cpus, a thread that collides moves to another cell.
+// values are raw longs, the double accumulator stores the bits of its doubles.
+// the cells are transient, the subclasses serialize their current value through a proxy.
+abstract class AdaptiveCells extends Number {
+    private static final long serialVersionUID = 75090611351784894L;
+
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    // padded against false sharing with the neighbouring cells
+    static final class Cell {
+        long p0, p1, p2, p3, p4, p5, p6;
+        volatile long value;
+        long q0, q1, q2, q3, q4, q5, q6;
+
+        Cell(long value) {
+            this.value = value;
+        }
+
+        boolean cas(long expect, long update) {
+            return CELL_VALUE.compareAndSet(this, expect, update);
+        }
+
+        long getAndSet(long update) {
+            return CELL_VALUE.getAndSet(this, update);
+        }
+    }
+
+    static final AtomicLongFieldUpdater<Cell> CELL_VALUE =
+        AtomicLongFieldUpdater.newUpdater(Cell.class, "value");
+    static final AtomicLongFieldUpdater<AdaptiveCells> BASE =
+        AtomicLongFieldUpdater.newUpdater(AdaptiveCells.class, "base");
+    static final AtomicIntegerFieldUpdater<AdaptiveCells> CELLS_BUSY =
+        AtomicIntegerFieldUpdater.newUpdater(AdaptiveCells.class, "cellsBusy");
+
+    // one probe per thread for all counters, changed when the thread collides
+    static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return new int[]{h == 0 ? 1 : h};
+    });
+
+    transient volatile long base;
+    transient volatile Cell[] cells;
+    // spin lock for creating and resizing the table
+    transient volatile int cellsBusy;
+
+    final boolean casBase(long expect, long update) {
+        return BASE.compareAndSet(this, expect, update);
+    }
+
+    final boolean casCellsBusy() {
+        return CELLS_BUSY.compareAndSet(this, 0, 1);
+    }
+
+    static int advanceProbe(int[] probe) {
+        int h = probe[0];
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        probe[0] = h;
+        return h;
+    }
+
+    static long apply(LongBinaryOperator fn, long v, long x) {
+        return fn == null ? v + x : fn.applyAsLong(v, x);
+    }
+
+    // the fast path failed, fn null means addition
+    final void accumulateSlow(long x, LongBinaryOperator fn, long identity) {
+        int[] probe = PROBE.get();
+        int h = probe[0];
+        boolean collided = false;
+        for (;;) {
+            Cell[] cs = cells;
+            if (cs != null) {
+                int n = cs.length;
+                Cell c = cs[h & (n - 1)];
+                if (c == null) {
+                    if (cellsBusy == 0 && casCellsBusy()) {
+                        try {
+                            if (cells == cs && cs[h & (n - 1)] == null) {
+                                cs[h & (n - 1)] = new Cell(apply(fn, identity, x));
+                                return;
+                            }
+                        } finally {
+                            cellsBusy = 0;
+                        }
+                        continue;
+                    }
+                    collided = false;
+                } else {
+                    long v = c.value;
+                    if (c.cas(v, apply(fn, v, x))) {
+                        return;
+                    }
+                    if (n >= NCPU || cells != cs) {
+                        // at the size limit, or the table changed under us: only move
+                        collided = false;
+                    } else if (!collided) {
+                        collided = true;
+                    } else if (cellsBusy == 0 && casCellsBusy()) {
+                        try {
+                            if (cells == cs) {
+                                cells = Arrays.copyOf(cs, n << 1);
+                            }
+                        } finally {
+                            cellsBusy = 0;
+                        }
+                        collided = false;
+                        continue;
+                    }
+                }
+                h = advanceProbe(probe);
+            } else if (cellsBusy == 0 && casCellsBusy()) {
+                try {
+                    if (cells == null) {
+                        Cell[] table = new Cell[2];
+                        table[h & 1] = new Cell(apply(fn, identity, x));
+                        cells = table;
+                        return;
+                    }
+                } finally {
+                    cellsBusy = 0;
+                }
+            } else {
+                long b = base;
+                if (casBase(b, apply(fn, b, x))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // a contended CAS on the base moved updates to the cells
+    public boolean isInflated() {
+        return cells != null;
+    }
+
+    public int cellCount() {
+        Cell[] cs = cells;
+        return cs == null ? 0 : cs.length;
+    }
+}
@@ -0,0 +1,146 @@
+package metrics;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+// a LongAdder that starts as a single CAS cell and inflates to per-cpu cells on contention.
+// add() and sum() behave like LongAdder: sum() is a cheap approximate read while updates run.
+// addAndGet() and incrementAndGet() fold the cells back into the base and fetch-and-add it,
+// at the price of touching every cell. what they return is the base after the fold, not sum():
+// an add() racing into a cell that was already drained is missing from it. with positive
+// deltas the returned values are still unique and increasing, enough for sequence numbers,
+// but not for the hot path.
+public class AdaptiveCounter extends AdaptiveCells {
+    private static final long serialVersionUID = -7494741768031681981L;
+
+    public void add(long x) {
+        Cell[] cs = cells;
+        long b;
+        if (cs == null && casBase(b = base, b + x)) {
+            return;
+        }
+        if (cs != null) {
+            Cell c = cs[PROBE.get()[0] & (cs.length - 1)];
+            long v;
+            if (c != null && c.cas(v = c.value, v + x)) {
+                return;
+            }
+        }
+        accumulateSlow(x, null, 0L);
+    }
+
+    public void increment() {
+        add(1L);
+    }
+
+    public void decrement() {
+        add(-1L);
+    }
+
+    public long addAndGet(long x) {
+        long drained = 0;
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null && c.value != 0) {
+                    drained += c.getAndSet(0);
+                }
+            }
+        }
+        return BASE.addAndGet(this, drained + x);
+    }
+
+    public long incrementAndGet() {
+        return addAndGet(1L);
+    }
+
+    public long sum() {
+        long sum = base;
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    sum += c.value;
+                }
+            }
+        }
+        return sum;
+    }
+
+    public void reset() {
+        base = 0L;
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    c.value = 0L;
+                }
+            }
+        }
+    }
+
+    // each cell is read and zeroed atomically, updates racing with it are counted in the next period
+    public long sumThenReset() {
+        long sum = BASE.getAndSet(this, 0L);
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    sum += c.getAndSet(0L);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public long longValue() {
+        return sum();
+    }
+
+    @Override
+    public int intValue() {
+        return (int) sum();
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) sum();
+    }
+
+    @Override
+    public double doubleValue() {
+        return (double) sum();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    // serialized as its sum, like a LongAdder
+    private Object writeReplace() {
+        return new SerializationProxy(sum());
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    private static final class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = 8465467340808338307L;
+
+        private final long value;
+
+        SerializationProxy(long value) {
+            this.value = value;
+        }
+
+        private Object readResolve() {
+            AdaptiveCounter counter = new AdaptiveCounter();
+            counter.base = value;
+            return counter;
+        }
+    }
+}
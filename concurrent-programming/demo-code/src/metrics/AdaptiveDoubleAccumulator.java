@@ -0,0 +1,153 @@
+package metrics;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+// a DoubleAccumulator on the adaptive cells: one CAS on the base until it is contended.
+// the function must be associative and commutative and free of side effects,
+// it may be applied more than once to the same value when a CAS fails.
+// like a DoubleAccumulator it serializes only if the function does, sum(), max() and min() do.
+public class AdaptiveDoubleAccumulator extends AdaptiveCells {
+    private static final long serialVersionUID = -2335628351635866976L;
+
+    final DoubleBinaryOperator function;
+    final transient LongBinaryOperator bitsFunction;
+    final long identity;
+
+    public AdaptiveDoubleAccumulator(DoubleBinaryOperator function, double identity) {
+        this.function = function;
+        this.bitsFunction = (a, b) -> Double.doubleToRawLongBits(
+            function.applyAsDouble(Double.longBitsToDouble(a), Double.longBitsToDouble(b)));
+        this.identity = Double.doubleToRawLongBits(identity);
+        this.base = this.identity;
+    }
+
+    public static AdaptiveDoubleAccumulator sum() {
+        return new AdaptiveDoubleAccumulator((DoubleBinaryOperator & Serializable) Double::sum, 0.0);
+    }
+
+    public static AdaptiveDoubleAccumulator max() {
+        return new AdaptiveDoubleAccumulator((DoubleBinaryOperator & Serializable) Math::max, Double.NEGATIVE_INFINITY);
+    }
+
+    public static AdaptiveDoubleAccumulator min() {
+        return new AdaptiveDoubleAccumulator((DoubleBinaryOperator & Serializable) Math::min, Double.POSITIVE_INFINITY);
+    }
+
+    public void accumulate(double x) {
+        // an update that leaves the value as it is, as most do for max or min, writes nothing
+        Cell[] cs = cells;
+        long b;
+        long r;
+        if (cs == null && ((r = apply(b = base, x)) == b || casBase(b, r))) {
+            return;
+        }
+        if (cs != null) {
+            Cell c = cs[PROBE.get()[0] & (cs.length - 1)];
+            long v;
+            if (c != null && ((r = apply(v = c.value, x)) == v || c.cas(v, r))) {
+                return;
+            }
+        }
+        accumulateSlow(Double.doubleToRawLongBits(x), bitsFunction, identity);
+    }
+
+    private long apply(long bits, double x) {
+        return Double.doubleToRawLongBits(function.applyAsDouble(Double.longBitsToDouble(bits), x));
+    }
+
+    public double get() {
+        double result = Double.longBitsToDouble(base);
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    result = function.applyAsDouble(result, Double.longBitsToDouble(c.value));
+                }
+            }
+        }
+        return result;
+    }
+
+    public void reset() {
+        base = identity;
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    c.value = identity;
+                }
+            }
+        }
+    }
+
+    public double getThenReset() {
+        double result = Double.longBitsToDouble(BASE.getAndSet(this, identity));
+        Cell[] cs = cells;
+        if (cs != null) {
+            for (Cell c : cs) {
+                if (c != null) {
+                    result = function.applyAsDouble(result, Double.longBitsToDouble(c.getAndSet(identity)));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double doubleValue() {
+        return get();
+    }
+
+    @Override
+    public long longValue() {
+        return (long) get();
+    }
+
+    @Override
+    public int intValue() {
+        return (int) get();
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) get();
+    }
+
+    @Override
+    public String toString() {
+        return Double.toString(get());
+    }
+
+    // serialized as its current value, its function and identity, like a DoubleAccumulator
+    private Object writeReplace() {
+        return new SerializationProxy(get(), function, Double.longBitsToDouble(identity));
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    private static final class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = -9111793192924269340L;
+
+        private final double value;
+        private final DoubleBinaryOperator function;
+        private final double identity;
+
+        SerializationProxy(double value, DoubleBinaryOperator function, double identity) {
+            this.value = value;
+            this.function = function;
+            this.identity = identity;
+        }
+
+        private Object readResolve() {
+            AdaptiveDoubleAccumulator accumulator = new AdaptiveDoubleAccumulator(function, identity);
+            accumulator.base = Double.doubleToRawLongBits(value);
+            return accumulator;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// HDR-style log-linear histogram: every power of two is split into 8 linear
+// sub-buckets, so a recorded value is off by at most 12.5%, whatever its magnitude.
+// recording is one atomic increment plus a LongAdder, no locks, no allocation.
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    final LongAdder total = new LongAdder();
+    final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.getAndIncrement(indexOf(value));
+        total.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry, another thread raised the max meanwhile
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, total.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // the largest value that lands in the bucket
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public static final class Snapshot {
+        final long[] counts;
+        public final long count;
+        public final long total;
+        public final long max;
+
+        Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        // upper bound of the bucket holding the given percentile, in [0, 100]
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                "count=" + count +
+                ", mean=" + (long) mean() +
+                ", p50=" + percentile(50) +
+                ", p99=" + percentile(99) +
+                ", p999=" + percentile(99.9) +
+                ", max=" + max +
+                '}';
+        }
+    }
+}
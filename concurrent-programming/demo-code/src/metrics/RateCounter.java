@@ -0,0 +1,100 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// an AdaptiveCounter plus sliding-window rates: one bucket per second in a ring,
+// each bucket remembers which second it counts. the first mark() in a new second
+// claims the bucket with a CAS and resets it, there is no lock and no background thread.
+// a mark racing with the claim may land in the old count and be dropped from the rates,
+// the total is always exact.
+public class RateCounter {
+    static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    final AdaptiveCounter total = new AdaptiveCounter();
+    final AdaptiveCounter[] counts;
+    final AtomicLongArray seconds;
+    final int windowSeconds;
+    final long origin = System.nanoTime();
+
+    public RateCounter() {
+        this(60);
+    }
+
+    public RateCounter(int windowSeconds) {
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("windowSeconds must be positive");
+        }
+        this.windowSeconds = windowSeconds;
+        // the window plus the second in progress
+        this.counts = new AdaptiveCounter[windowSeconds + 1];
+        this.seconds = new AtomicLongArray(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new AdaptiveCounter();
+            seconds.set(i, -1L);
+        }
+    }
+
+    public void mark() {
+        mark(1L);
+    }
+
+    public void mark(long n) {
+        total.add(n);
+        long second = currentSecond();
+        int i = (int) (second % counts.length);
+        long held = seconds.get(i);
+        if (held < second && seconds.compareAndSet(i, held, second)) {
+            counts[i].reset();
+        }
+        counts[i].add(n);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    // events in the last n complete seconds
+    public long count(int lastSeconds) {
+        if (lastSeconds <= 0 || lastSeconds > windowSeconds) {
+            throw new IllegalArgumentException("lastSeconds must be in 1.." + windowSeconds);
+        }
+        long now = currentSecond();
+        long sum = 0;
+        for (long s = now - 1; s >= now - lastSeconds && s >= 0; s--) {
+            int i = (int) (s % counts.length);
+            if (seconds.get(i) == s) {
+                sum += counts[i].sum();
+            }
+        }
+        return sum;
+    }
+
+    // average events per second over the last n complete seconds,
+    // or over the seconds since construction if fewer
+    public double rate(int lastSeconds) {
+        long elapsed = Math.min(lastSeconds, currentSecond());
+        return elapsed == 0 ? 0.0 : (double) count(lastSeconds) / elapsed;
+    }
+
+    public long perSecond() {
+        return count(1);
+    }
+
+    // a window shorter than a minute is scaled up from its average rate
+    public long perMinute() {
+        if (windowSeconds < 60) {
+            return Math.round(rate(windowSeconds) * 60);
+        }
+        return count(60);
+    }
+
+    long currentSecond() {
+        return (System.nanoTime() - origin) / SECOND_NANOS;
+    }
+
+    @Override
+    public String toString() {
+        return "RateCounter[count=" + count() + ", perSecond=" + perSecond() + "]";
+    }
+}
@@ -1,24 +1,46 @@
 package threadlocal;
 
+import threadpool.InstrumentedThreadPoolExecutor;
+import threadpool.MpmcArrayBlockingQueue;
+
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class RemoveThreadLocalDemo {
     private static final ThreadLocal<Long> START_TIME = new ThreadLocal<>();
-    public static void main(String[] args) {
-        ExecutorService pool = new ThreadPoolExecutor(
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService pool = new InstrumentedThreadPoolExecutor(
             2,
             4,
             60,
             TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(2)) {
+            // lock-free and without the node per task of a LinkedBlockingQueue
+            new MpmcArrayBlockingQueue<>(2)) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                super.beforeExecute(t, r);
+                START_TIME.set(System.currentTimeMillis());
+            }
+
             @Override
             protected void afterExecute(Runnable r, Throwable t) {
                 super.afterExecute(r, t);
+                System.out.println(Thread.currentThread().getName() + " took "
+                    + (System.currentTimeMillis() - START_TIME.get()) + "ms");
                 START_TIME.remove();
             }
         };
+        // 2 core threads, 2 queued, 2 more threads up to the maximum of 4
+        for (int i = 0; i < 6; i++) {
+            pool.execute(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
     }
 }
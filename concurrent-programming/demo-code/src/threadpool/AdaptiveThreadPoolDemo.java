@@ -0,0 +1,68 @@
+package threadpool;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// feeds the adaptive pool tasks that mostly sleep, then tasks that only compute,
+// and prints the measured wait/compute ratio and the pool size it settles on.
+// the first phase should grow toward cpus * (1 + 9), the second shrink toward cpus
+public class AdaptiveThreadPoolDemo {
+    static volatile long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        AdaptiveThreadPoolExecutor pool = new AdaptiveThreadPoolExecutor(1, 200, 1.0,
+            200, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), Thread::new);
+        System.out.println("io bound, 1ms compute and 9ms sleep per task:");
+        phase(pool, 1, 9);
+        System.out.println("cpu bound, 1ms compute per task:");
+        phase(pool, 1, 0);
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.println(pool.stats());
+    }
+
+    static void phase(AdaptiveThreadPoolExecutor pool, long computeMillis, long sleepMillis) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> {
+            while (running.get()) {
+                // keep a backlog so the pool is never starved for work
+                if (pool.getQueue().size() < 1000) {
+                    pool.execute(() -> task(computeMillis, sleepMillis));
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int second = 1; second <= 5; second++) {
+            long completed = pool.stats().completedTaskCount;
+            TimeUnit.SECONDS.sleep(1);
+            System.out.printf("  %ds: wait/compute %.2f, target %d, pool %d, %d tasks/s%n", second,
+                pool.waitComputeRatio(), pool.targetPoolSize(), pool.getCorePoolSize(),
+                pool.stats().completedTaskCount - completed);
+        }
+        running.set(false);
+        producer.join();
+        pool.getQueue().clear();
+    }
+
+    static void task(long computeMillis, long sleepMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(computeMillis);
+        long x = ThreadLocalRandom.current().nextLong();
+        while (System.nanoTime() < deadline) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        sink = x;
+        if (sleepMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package threadpool;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// a pool that sizes itself with N * U * (1 + wait / compute), from thread/04-optimal-number-of-threads.org.
+// every task's cpu time comes from ThreadMXBean and its wall time from System.nanoTime(),
+// the difference is the time it spent blocked, sleeping or in I/O.
+// once per period the ratio of the last period is smoothed into a moving average and,
+// while the pool's tasks leave cpu unused, the pool moves half way toward the size it asks for.
+// runnable threads waiting for a cpu look like waiting too, so once the cpus are busy the
+// formula is no guide: the pool then shrinks step by step until throughput drops,
+// steps back and holds. sizes stay within [minThreads, maxThreads].
+// core and max size are kept equal, like newFixedThreadPool.
+public class AdaptiveThreadPoolExecutor extends InstrumentedThreadPoolExecutor {
+    static final int CPUS = Runtime.getRuntime().availableProcessors();
+    static final long DEFAULT_PERIOD_MILLIS = 1000;
+    // weight of the newest period in the moving average
+    static final double SMOOTHING = 0.3;
+    // a pool using this share of its target cpu time cannot gain from more threads
+    static final double SATURATED = 0.9;
+    // throughput changes below this are noise
+    static final double SIGNIFICANT_CHANGE = 0.05;
+    // periods to stay at a size after a probe below it cost throughput
+    static final int HOLD_PERIODS = 10;
+    static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    final int minThreads;
+    final int maxThreads;
+    final double targetUtilization;
+    final boolean measuring;
+    final LongAdder cpuNanos = new LongAdder();
+    final LongAdder wallNanos = new LongAdder();
+    // null when the jvm cannot measure thread cpu time and the pool keeps its size
+    final ScheduledExecutorService resizer;
+    final long periodNanos;
+    // only the resizer thread touches these
+    long lastCpuNanos;
+    long lastWallNanos;
+    long lastCompleted;
+    long lastPeriodCompleted;
+    int lastPoolSize;
+    boolean lastProbed;
+    int holdPeriods;
+    volatile double waitComputeRatio = Double.NaN;
+    volatile int targetPoolSize;
+
+    public AdaptiveThreadPoolExecutor(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, 1.0, DEFAULT_PERIOD_MILLIS, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), Executors.defaultThreadFactory());
+    }
+
+    public AdaptiveThreadPoolExecutor(int minThreads, int maxThreads, double targetUtilization,
+                                      long period, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        super(initialSize(minThreads, maxThreads), initialSize(minThreads, maxThreads),
+            0L, TimeUnit.MILLISECONDS, workQueue, threadFactory);
+        if (minThreads <= 0 || maxThreads < minThreads || targetUtilization <= 0 || targetUtilization > 1 || period <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.targetUtilization = targetUtilization;
+        this.targetPoolSize = getCorePoolSize();
+        this.periodNanos = unit.toNanos(period);
+        this.measuring = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+        if (measuring && !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+        }
+        if (measuring) {
+            this.resizer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "adaptive-pool-resizer");
+                t.setDaemon(true);
+                return t;
+            });
+            resizer.scheduleAtFixedRate(this::resize, period, period, unit);
+        } else {
+            this.resizer = null;
+        }
+    }
+
+    // a cpu-bound guess to start from, the first periods correct it
+    private static int initialSize(int minThreads, int maxThreads) {
+        return Math.max(minThreads, Math.min(maxThreads, CPUS + 1));
+    }
+
+    @Override
+    TimedTask newTimedTask(Runnable command, long enqueued) {
+        return measuring ? new CpuTimedTask(command, enqueued) : super.newTimedTask(command, enqueued);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof CpuTimedTask) {
+            ((CpuTimedTask) r).startedCpu = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        if (r instanceof CpuTimedTask) {
+            CpuTimedTask task = (CpuTimedTask) r;
+            cpuNanos.add(THREAD_MX_BEAN.getCurrentThreadCpuTime() - task.startedCpu);
+            wallNanos.add(System.nanoTime() - task.started);
+        }
+        super.afterExecute(r, t);
+    }
+
+    void resize() {
+        long cpu = cpuNanos.sum();
+        long wall = wallNanos.sum();
+        long done = completed.sum();
+        long periodCpu = cpu - lastCpuNanos;
+        long periodWall = wall - lastWallNanos;
+        long periodCompleted = done - lastCompleted;
+        lastCpuNanos = cpu;
+        lastWallNanos = wall;
+        lastCompleted = done;
+        if (periodCpu <= 0 || isShutdown()) {
+            // idle, nothing to learn from
+            return;
+        }
+        double ratio = Math.max(0.0, (double) (periodWall - periodCpu) / periodCpu);
+        double smoothed = waitComputeRatio;
+        smoothed = Double.isNaN(smoothed) ? ratio : smoothed + SMOOTHING * (ratio - smoothed);
+        waitComputeRatio = smoothed;
+        int target = (int) Math.round(CPUS * targetUtilization * (1 + smoothed));
+        target = Math.max(minThreads, Math.min(maxThreads, target));
+        targetPoolSize = target;
+
+        int current = getCorePoolSize();
+        // share of the machine's cpu time this pool's tasks used during the period
+        double utilization = (double) periodCpu / (periodNanos * CPUS);
+        boolean probed = false;
+        int next;
+        if (utilization < SATURATED * targetUtilization) {
+            // cpu left over, move half way toward the formula's size
+            int gap = target - current;
+            next = current + (gap / 2 != 0 ? gap / 2 : gap);
+        } else if (lastProbed && periodCompleted < lastPeriodCompleted * (1 - SIGNIFICANT_CHANGE)) {
+            // the threads we took away were doing useful waiting, give them back and stay there
+            next = lastPoolSize;
+            holdPeriods = HOLD_PERIODS;
+        } else if (holdPeriods > 0) {
+            holdPeriods--;
+            next = current;
+        } else {
+            // the cpus are busy and runnable threads inflate the measured waiting,
+            // the formula would only grow the pool. probe downwards and watch throughput instead
+            next = Math.max(cpuBoundSize(), current - Math.max(1, current >>> 3));
+            probed = next < current;
+        }
+        lastProbed = probed;
+        lastPoolSize = current;
+        lastPeriodCompleted = periodCompleted;
+        next = Math.max(minThreads, Math.min(maxThreads, next));
+        if (next != current) {
+            resizeTo(next);
+        }
+    }
+
+    // no pool with work for every thread needs fewer threads than cpus it may use
+    private int cpuBoundSize() {
+        return Math.max(minThreads, (int) Math.round(CPUS * targetUtilization));
+    }
+
+    private void resizeTo(int size) {
+        // core may never exceed max, grow max first and shrink core first
+        if (size > getMaximumPoolSize()) {
+            setMaximumPoolSize(size);
+            setCorePoolSize(size);
+        } else {
+            setCorePoolSize(size);
+            setMaximumPoolSize(size);
+        }
+    }
+
+    // NaN until the first period with completed work
+    public double waitComputeRatio() {
+        return waitComputeRatio;
+    }
+
+    public int targetPoolSize() {
+        return targetPoolSize;
+    }
+
+    @Override
+    protected void terminated() {
+        if (resizer != null) {
+            resizer.shutdownNow();
+        }
+        super.terminated();
+    }
+
+    static final class CpuTimedTask extends TimedTask {
+        // the worker's cpu time at the start, beside the wall time the base class keeps
+        long startedCpu;
+
+        CpuTimedTask(Runnable task, long enqueued) {
+            super(task, enqueued);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[waitComputeRatio=" + waitComputeRatio + ", targetPoolSize=" + targetPoolSize + "]";
+    }
+}
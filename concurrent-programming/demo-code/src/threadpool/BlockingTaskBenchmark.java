@@ -0,0 +1,135 @@
+package threadpool;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// runs many tasks that sleep, standing in for blocking I/O as in TargetTask, on each executor
+// mode and prints throughput and footprint: peak live platform threads, peak resident memory
+// growth (linux only) and peak heap. VIRTUAL/limited caps the tasks sleeping at once with
+// a ResourceLimiter at FIXED's thread count.
+// modes run in one jvm one after the other, for clean footprint numbers name one mode per run:
+//   java threadpool.BlockingTaskBenchmark 10000 10 VIRTUAL
+public class BlockingTaskBenchmark {
+    static final int TASKS = 10000;
+    static final long SLEEP_MILLIS = 10;
+    static final String RESOURCE = "io";
+    static ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    static MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : TASKS;
+        long sleepMillis = args.length > 1 ? Long.parseLong(args[1]) : SLEEP_MILLIS;
+        List<ExecutorMode> modes = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            modes.add(ExecutorMode.valueOf(args[i].toUpperCase()));
+        }
+        if (modes.isEmpty()) {
+            modes.add(ExecutorMode.CACHED);
+            modes.add(ExecutorMode.FIXED);
+            modes.add(ExecutorMode.VIRTUAL);
+        }
+        System.out.println(tasks + " tasks sleeping " + sleepMillis + "ms each:");
+        for (ExecutorMode mode : modes) {
+            if (!mode.isAvailable()) {
+                System.out.println(mode + ": not available on java " + System.getProperty("java.version"));
+                continue;
+            }
+            run(mode.toString(), mode, null, tasks, sleepMillis);
+            if (mode == ExecutorMode.VIRTUAL) {
+                ResourceLimiter limiter = new ResourceLimiter(ExecutorMode.FIXED_THREADS);
+                run(mode + "/limited", mode, limiter, tasks, sleepMillis);
+            }
+        }
+    }
+
+    static void run(String name, ExecutorMode mode, ResourceLimiter limiter, int tasks, long sleepMillis)
+        throws InterruptedException {
+        System.gc();
+        threadMXBean.resetPeakThreadCount();
+        long rssBefore = residentBytes();
+        Sampler sampler = new Sampler();
+        sampler.start();
+
+        ExecutorService pool = mode.newExecutor();
+        CountDownLatch latch = new CountDownLatch(tasks);
+        Runnable sleep = () -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            pool.execute(() -> {
+                try {
+                    if (limiter == null) {
+                        sleep.run();
+                    } else {
+                        limiter.run(RESOURCE, sleep);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        long nanos = System.nanoTime() - start;
+        sampler.interrupt();
+        sampler.join();
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%-16s %9.0f tasks/s, %6d peak platform threads, %s peak rss growth, %4dMB peak heap%n",
+            name + ":", tasks / (nanos / 1e9), threadMXBean.getPeakThreadCount(),
+            rssBefore < 0 ? "   n/a" : String.format("%4dMB", (sampler.maxRss - rssBefore) >> 20),
+            sampler.maxHeap >> 20);
+    }
+
+    static final class Sampler extends Thread {
+        volatile long maxRss;
+        volatile long maxHeap;
+
+        Sampler() {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                maxRss = Math.max(maxRss, residentBytes());
+                maxHeap = Math.max(maxHeap, memoryMXBean.getHeapMemoryUsage().getUsed());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // VmRSS of this process, -1 where there is no /proc
+    static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) << 10;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
@@ -3,9 +3,10 @@ package threadpool;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+// an ExecutorMode name as the first argument, e.g. VIRTUAL, runs the same tasks there instead
 public class CachedThreadPoolDemo {
     public static void main(String[] args) {
-        ExecutorService pool = Executors.newCachedThreadPool();
+        ExecutorService pool = args.length > 0 ? ExecutorMode.fromArgs(args, 0).newExecutor() : Executors.newCachedThreadPool();
         for (int i = 0; i < 5; i++) {
             pool.execute(new TargetTask());
             pool.submit(new TargetTask());
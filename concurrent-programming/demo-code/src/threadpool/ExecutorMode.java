@@ -0,0 +1,71 @@
+package threadpool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// where the blocking-task demos run their tasks, picked by name on the command line
+public enum ExecutorMode {
+    // one platform thread per concurrent task, 10,000 sleeping tasks are 10,000 os threads
+    CACHED {
+        @Override
+        public ExecutorService newExecutor() {
+            return Executors.newCachedThreadPool();
+        }
+    },
+    // a bounded platform pool, the thread count caps the concurrency
+    FIXED {
+        @Override
+        public ExecutorService newExecutor() {
+            return Executors.newFixedThreadPool(FIXED_THREADS);
+        }
+    },
+    // a platform pool sized from the tasks' wait/compute ratio
+    ADAPTIVE {
+        @Override
+        public ExecutorService newExecutor() {
+            return new AdaptiveThreadPoolExecutor(1, MAX_ADAPTIVE_THREADS);
+        }
+    },
+    // a deque per worker and work stealing, for many tiny tasks rather than blocking ones
+    WORK_STEALING {
+        @Override
+        public ExecutorService newExecutor() {
+            return new WorkStealingExecutor();
+        }
+    },
+    // a virtual thread per task, blocking unmounts it and frees the carrier thread,
+    // limit access to scarce resources with a ResourceLimiter instead of the pool size
+    VIRTUAL {
+        @Override
+        public ExecutorService newExecutor() {
+            return VirtualThreads.newExecutor();
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return VirtualThreads.isSupported();
+        }
+    };
+
+    static final int FIXED_THREADS = 200;
+    static final int MAX_ADAPTIVE_THREADS = 1000;
+
+    public abstract ExecutorService newExecutor();
+
+    public boolean isAvailable() {
+        return true;
+    }
+
+    // the mode named by args[index], CACHED if there is none or virtual threads are missing
+    public static ExecutorMode fromArgs(String[] args, int index) {
+        if (args.length <= index) {
+            return CACHED;
+        }
+        ExecutorMode mode = valueOf(args[index].toUpperCase());
+        if (!mode.isAvailable()) {
+            System.out.println(mode + " is not available on java " + System.getProperty("java.version") + ", using " + CACHED);
+            return CACHED;
+        }
+        return mode;
+    }
+}
@@ -0,0 +1,64 @@
+package threadpool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// overloads a small pool with short tasks, some of which fail, and prints what the
+// pool saw. the stats are also on JMX under threadpool:type=InstrumentedThreadPoolExecutor
+// while the demo runs, e.g. in jconsole
+public class InstrumentedThreadPoolDemo {
+    static final int TASKS = 2000;
+
+    public static void main(String[] args) throws InterruptedException {
+        InstrumentedThreadPoolExecutor pool = new InstrumentedThreadPoolExecutor(
+            2,
+            4,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(100));
+        pool.registerMBean("demo");
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        long start = System.nanoTime();
+        for (int i = 0; i < TASKS; i++) {
+            // only submitted tasks fail, their Future keeps the exception off the console
+            boolean mayFail = i % 2 != 0;
+            Runnable task = () -> {
+                try {
+                    TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(100, 1000));
+                    if (mayFail && ThreadLocalRandom.current().nextInt(50) == 0) {
+                        throw new IllegalStateException("task failed");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            };
+            try {
+                if (mayFail) {
+                    pool.submit(task);
+                } else {
+                    pool.execute(task);
+                }
+            } catch (RejectedExecutionException e) {
+                latch.countDown();
+            }
+            if (i % 5 == 0) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        }
+        latch.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        ThreadPoolStats stats = pool.stats();
+        System.out.println(stats);
+        System.out.printf("rejection rate: %.1f%%%n", stats.rejectionRate() * 100);
+        System.out.printf("threads needed for %.0f tasks/s: %.1f%n",
+            TASKS / seconds, stats.requiredThreads(TASKS / seconds));
+    }
+}
@@ -0,0 +1,373 @@
+package threadpool;
+
+import metrics.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// a ThreadPoolExecutor that measures itself: how long tasks wait in the queue and run,
+// how deep the queue is when a task arrives, how many workers are busy when one starts,
+// and how many tasks fail or are rejected.
+// execute() wraps each task in a TimedTask that carries its own timestamps, so
+// beforeExecute/afterExecute need no ThreadLocal; recording is a few atomic increments.
+// getQueue() hands out the wrappers, shutdownNow() unwraps them, remove() and purge() see through them.
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+    // the pool a rejection policy is running for on this thread, its re-execute is no new submission
+    static final ThreadLocal<ThreadPoolExecutor> REJECTING = new ThreadLocal<>();
+
+    final LatencyHistogram queueWait = new LatencyHistogram();
+    final LatencyHistogram execution = new LatencyHistogram();
+    final LatencyHistogram queueDepth = new LatencyHistogram();
+    final LatencyHistogram activeAtStart = new LatencyHistogram();
+    final LongAdder submitted = new LongAdder();
+    final LongAdder completed = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    // getActiveCount() takes the pool's main lock, this does not
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger peakActive = new AtomicInteger();
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+            Executors.defaultThreadFactory(), new AbortPolicy());
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, new AbortPolicy());
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, Executors.defaultThreadFactory(), handler);
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory,
+            new CountingRejectionHandler(handler, new LongAdder()));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (REJECTING.get() != this) {
+            submitted.increment();
+            // size() of a LinkedBlockingQueue or SynchronousQueue is lock-free, an ArrayBlockingQueue locks
+            queueDepth.record(getQueue().size());
+        }
+        super.execute(newTimedTask(command, System.nanoTime()));
+    }
+
+    // subclasses that time more of a task hand out their own wrapper
+    TimedTask newTimedTask(Runnable command, long enqueued) {
+        return new TimedTask(command, enqueued);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof TimedTask) {
+            TimedTask task = (TimedTask) r;
+            task.started = System.nanoTime();
+            queueWait.record(task.started - task.enqueued);
+        }
+        int busy = active.incrementAndGet();
+        activeAtStart.record(busy);
+        int peak;
+        while (busy > (peak = peakActive.get()) && !peakActive.compareAndSet(peak, busy)) {
+            // retry, another worker raised the peak meanwhile
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        active.decrementAndGet();
+        completed.increment();
+        Runnable task = r;
+        if (r instanceof TimedTask) {
+            TimedTask timed = (TimedTask) r;
+            execution.record(System.nanoTime() - timed.started);
+            task = timed.task;
+        }
+        if (t != null || failedFuture(task)) {
+            failed.increment();
+        }
+    }
+
+    // submit() wraps the task in a FutureTask that keeps the exception to itself
+    private static boolean failedFuture(Runnable task) {
+        if (!(task instanceof Future<?>)) {
+            return false;
+        }
+        Future<?> future = (Future<?>) task;
+        if (!future.isDone() || future.isCancelled()) {
+            return false;
+        }
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        for (Runnable r : getQueue()) {
+            if (r instanceof TimedTask && ((TimedTask) r).task == task) {
+                return super.remove(r);
+            }
+        }
+        return super.remove(task);
+    }
+
+    // ThreadPoolExecutor.purge() looks for cancelled Futures, the wrappers around them are not
+    @Override
+    public void purge() {
+        BlockingQueue<Runnable> q = getQueue();
+        try {
+            q.removeIf(InstrumentedThreadPoolExecutor::isCancelled);
+        } catch (ConcurrentModificationException e) {
+            // the queue's iterator is not weakly consistent, go over a copy
+            for (Object r : q.toArray()) {
+                if (isCancelled(r)) {
+                    q.remove(r);
+                }
+            }
+        }
+        // the tasks queued without a wrapper, and the termination check
+        super.purge();
+    }
+
+    private static boolean isCancelled(Object r) {
+        return r instanceof TimedTask && ((TimedTask) r).task instanceof Future<?>
+            && ((Future<?>) ((TimedTask) r).task).isCancelled();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = super.shutdownNow();
+        List<Runnable> unwrapped = new ArrayList<>(tasks.size());
+        for (Runnable r : tasks) {
+            unwrapped.add(r instanceof TimedTask ? ((TimedTask) r).task : r);
+        }
+        return unwrapped;
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new CountingRejectionHandler(handler, rejectionHandler().rejected));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return rejectionHandler().delegate;
+    }
+
+    private CountingRejectionHandler rejectionHandler() {
+        return (CountingRejectionHandler) super.getRejectedExecutionHandler();
+    }
+
+    public ThreadPoolStats stats() {
+        return new ThreadPoolStats(submitted.sum(), completed.sum(), failed.sum(), rejectionHandler().rejected.sum(),
+            active.get(), peakActive.get(), getPoolSize(), getCorePoolSize(), getMaximumPoolSize(),
+            getQueue().size(), getQueue().remainingCapacity(),
+            queueWait.snapshot(), execution.snapshot(), queueDepth.snapshot(), activeAtStart.snapshot());
+    }
+
+    public ObjectName registerMBean(String poolName) {
+        try {
+            ObjectName name = new ObjectName("threadpool:type=InstrumentedThreadPoolExecutor,name=" + ObjectName.quote(poolName));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new MXBean(this), name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register the stats of " + poolName, e);
+        }
+    }
+
+    static class TimedTask implements Runnable {
+        final Runnable task;
+        final long enqueued;
+        // written by the worker in beforeExecute, read by the same worker in afterExecute
+        long started;
+
+        TimedTask(Runnable task, long enqueued) {
+            this.task = task;
+            this.enqueued = enqueued;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+    // the rejection count survives setRejectedExecutionHandler
+    static final class CountingRejectionHandler implements RejectedExecutionHandler {
+        final RejectedExecutionHandler delegate;
+        final LongAdder rejected;
+
+        CountingRejectionHandler(RejectedExecutionHandler delegate, LongAdder rejected) {
+            if (delegate == null) {
+                throw new NullPointerException();
+            }
+            this.delegate = delegate;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejected.increment();
+            // the policies see the caller's task, DiscardOldestPolicy re-executes it and it is wrapped again
+            // without being counted as submitted twice
+            ThreadPoolExecutor outer = REJECTING.get();
+            REJECTING.set(executor);
+            try {
+                delegate.rejectedExecution(r instanceof TimedTask ? ((TimedTask) r).task : r, executor);
+            } finally {
+                if (outer == null) {
+                    REJECTING.remove();
+                } else {
+                    REJECTING.set(outer);
+                }
+            }
+        }
+    }
+
+    static final class MXBean implements ThreadPoolStatsMXBean {
+        final InstrumentedThreadPoolExecutor pool;
+
+        MXBean(InstrumentedThreadPoolExecutor pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public long getSubmittedTaskCount() {
+            return pool.submitted.sum();
+        }
+
+        @Override
+        public long getCompletedTaskCount() {
+            return pool.completed.sum();
+        }
+
+        @Override
+        public long getFailedTaskCount() {
+            return pool.failed.sum();
+        }
+
+        @Override
+        public long getRejectedTaskCount() {
+            return pool.rejectionHandler().rejected.sum();
+        }
+
+        @Override
+        public int getActiveThreads() {
+            return pool.active.get();
+        }
+
+        @Override
+        public int getPeakActiveThreads() {
+            return pool.peakActive.get();
+        }
+
+        @Override
+        public int getPoolSize() {
+            return pool.getPoolSize();
+        }
+
+        @Override
+        public int getCorePoolSize() {
+            return pool.getCorePoolSize();
+        }
+
+        @Override
+        public void setCorePoolSize(int corePoolSize) {
+            pool.setCorePoolSize(corePoolSize);
+        }
+
+        @Override
+        public int getMaximumPoolSize() {
+            return pool.getMaximumPoolSize();
+        }
+
+        @Override
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            pool.setMaximumPoolSize(maximumPoolSize);
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return pool.getQueue().size();
+        }
+
+        @Override
+        public long getQueueDepthP99() {
+            return pool.queueDepth.snapshot().percentile(99);
+        }
+
+        @Override
+        public double getUtilization() {
+            return (double) pool.active.get() / pool.getMaximumPoolSize();
+        }
+
+        @Override
+        public long getQueueWaitP50Nanos() {
+            return pool.queueWait.snapshot().percentile(50);
+        }
+
+        @Override
+        public long getQueueWaitP99Nanos() {
+            return pool.queueWait.snapshot().percentile(99);
+        }
+
+        @Override
+        public long getQueueWaitMaxNanos() {
+            return pool.queueWait.snapshot().max;
+        }
+
+        @Override
+        public long getExecutionP50Nanos() {
+            return pool.execution.snapshot().percentile(50);
+        }
+
+        @Override
+        public long getExecutionP99Nanos() {
+            return pool.execution.snapshot().percentile(99);
+        }
+
+        @Override
+        public long getExecutionMaxNanos() {
+            return pool.execution.snapshot().max;
+        }
+    }
+}
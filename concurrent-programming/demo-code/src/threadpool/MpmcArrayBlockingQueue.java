@@ -0,0 +1,393 @@
+package threadpool;
+
+import atomicity.LongArrayHandle;
+import atomicity.RefArrayHandle;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Dmitry Vyukov's bounded multi-producer multi-consumer queue: a ring of slots, each with
+// a sequence number that says whose turn it is. a producer claims a slot by moving the tail
+// with one CAS, writes the element and bumps the slot's sequence to hand it to consumers;
+// consumers do the same with the head. no locks, and no allocation per element, unlike
+// LinkedBlockingQueue's node per offer and its two locks.
+// head and tail sit in one padded long[] so producers and consumers do not share a cache line.
+// blocking calls spin, then yield, then park; offer and poll only wake someone when a thread
+// is parked. capacity is rounded up to a power of two.
+// remove(Object) swaps the element for a tombstone with one CAS, a consumer that claims the
+// slot drops the tombstone and takes the next one; it lets a ThreadPoolExecutor remove() and purge().
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    static final int STRIDE = 16;
+    static final int TAIL = STRIDE;
+    static final int HEAD = STRIDE * 2;
+    // tombstones not yet passed by a consumer, size() leaves them out
+    static final int REMOVED_COUNT = STRIDE * 3;
+    static final int SPINS = 1 << 6;
+    static final int YIELDS = 1 << 4;
+    // spinning cannot make progress when the thread we wait for needs our cpu
+    static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+    static final LongArrayHandle LONGS = LongArrayHandle.newUpdater();
+    static final RefArrayHandle<Object> REFS = RefArrayHandle.newUpdater(Object[].class);
+    static final Object REMOVED = new Object();
+
+    final Object[] buffer;
+    final long[] sequences;
+    final long[] positions = new long[STRIDE * 4];
+    final int mask;
+    final ConcurrentLinkedQueue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+    final ConcurrentLinkedQueue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    public MpmcArrayBlockingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int n = 1 << -Integer.numberOfLeadingZeros(capacity - 1);
+        buffer = new Object[n];
+        sequences = new long[n];
+        mask = n - 1;
+        for (int i = 0; i < n; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = LONGS.getOpaque(positions, TAIL);
+        for (;;) {
+            int i = (int) pos & mask;
+            long seq = LONGS.getAcquire(sequences, i);
+            long dif = seq - pos;
+            if (dif == 0) {
+                long witness = LONGS.compareAndExchange(positions, TAIL, pos, pos + 1);
+                if (witness == pos) {
+                    buffer[i] = e;
+                    // a volatile store, so the check for parked consumers cannot move above it
+                    LONGS.set(sequences, i, pos + 1);
+                    signal(waitingConsumers);
+                    return true;
+                }
+                pos = witness;
+            } else if (dif < 0) {
+                // the slot still holds the element of the previous lap, full
+                return false;
+            } else {
+                // another producer took the slot, catch up
+                pos = LONGS.getOpaque(positions, TAIL);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = LONGS.getOpaque(positions, HEAD);
+        for (;;) {
+            int i = (int) pos & mask;
+            long seq = LONGS.getAcquire(sequences, i);
+            long dif = seq - (pos + 1);
+            if (dif == 0) {
+                long witness = LONGS.compareAndExchange(positions, HEAD, pos, pos + 1);
+                if (witness == pos) {
+                    // a swap, so a concurrent remove(Object) either gets the element or we do
+                    Object e = REFS.getAndSet(buffer, i, null);
+                    // hand the slot to the producer of the next lap
+                    LONGS.set(sequences, i, pos + mask + 1);
+                    signal(waitingProducers);
+                    if (e != REMOVED) {
+                        return (E) e;
+                    }
+                    LONGS.getAndDecrement(positions, REMOVED_COUNT);
+                    pos = LONGS.getOpaque(positions, HEAD);
+                    continue;
+                }
+                pos = witness;
+            } else if (dif < 0) {
+                // not yet written, empty
+                return null;
+            } else {
+                pos = LONGS.getOpaque(positions, HEAD);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        retry:
+        for (;;) {
+            long head = LONGS.get(positions, HEAD);
+            // look past the tombstones, one lap at most
+            for (long pos = head; pos - head <= mask; pos++) {
+                int i = (int) pos & mask;
+                if (LONGS.getAcquire(sequences, i) - (pos + 1) < 0) {
+                    if (LONGS.get(positions, HEAD) == head) {
+                        return null;
+                    }
+                    continue retry;
+                }
+                Object e = REFS.getAcquire(buffer, i);
+                // a consumer may have taken it meanwhile
+                if (LONGS.get(positions, HEAD) != head) {
+                    continue retry;
+                }
+                if (e != null && e != REMOVED) {
+                    return (E) e;
+                }
+            }
+            if (LONGS.get(positions, HEAD) == head) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (!offer(e)) {
+            offer(e, 0L);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0) {
+            return false;
+        }
+        // 0 means no deadline
+        return offer(e, (System.nanoTime() + nanos) | 1L);
+    }
+
+    private boolean offer(E e, long deadline) throws InterruptedException {
+        for (int spins = 0; ; spins++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (offer(e)) {
+                return true;
+            }
+            if (deadline != 0L && deadline - System.nanoTime() <= 0L) {
+                return false;
+            }
+            if (spins < SPINS + YIELDS) {
+                spinWait(spins);
+                continue;
+            }
+            Thread t = Thread.currentThread();
+            // enqueue before the last try, a poll in between either lets it succeed or sees us and unparks us
+            waitingProducers.add(t);
+            try {
+                if (offer(e)) {
+                    return true;
+                }
+                park(deadline);
+            } finally {
+                waitingProducers.remove(t);
+                // signals meant for others may have gone to us while we were first in line
+                if (occupied() < buffer.length) {
+                    signal(waitingProducers);
+                }
+            }
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        return e != null ? e : poll(0L);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        if (nanos <= 0) {
+            return null;
+        }
+        return poll((System.nanoTime() + nanos) | 1L);
+    }
+
+    private E poll(long deadline) throws InterruptedException {
+        for (int spins = 0; ; spins++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            if (deadline != 0L && deadline - System.nanoTime() <= 0L) {
+                return null;
+            }
+            if (spins < SPINS + YIELDS) {
+                spinWait(spins);
+                continue;
+            }
+            Thread t = Thread.currentThread();
+            // enqueue before the last try, an offer in between either lets it succeed or sees us and unparks us
+            waitingConsumers.add(t);
+            try {
+                if ((e = poll()) != null) {
+                    return e;
+                }
+                park(deadline);
+            } finally {
+                waitingConsumers.remove(t);
+                // signals meant for others may have gone to us while we were first in line
+                if (!isEmpty()) {
+                    signal(waitingConsumers);
+                }
+            }
+        }
+    }
+
+    private void park(long deadline) {
+        if (deadline == 0L) {
+            LockSupport.park(this);
+        } else {
+            LockSupport.parkNanos(this, deadline - System.nanoTime());
+        }
+    }
+
+    private static void spinWait(int spins) {
+        if (MULTIPROCESSOR && spins < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        Thread next = waiters.peek();
+        if (next != null) {
+            LockSupport.unpark(next);
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, occupied() - LONGS.get(positions, REMOVED_COUNT));
+    }
+
+    // slots between head and tail, tombstones included
+    private int occupied() {
+        for (;;) {
+            long head = LONGS.get(positions, HEAD);
+            long tail = LONGS.get(positions, TAIL);
+            if (LONGS.get(positions, HEAD) == head) {
+                return (int) Math.max(0, Math.min(tail - head, buffer.length));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        // a tombstone holds its slot until a consumer passes it
+        return buffer.length - occupied();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o != null && remove(o, false);
+    }
+
+    private boolean remove(Object o, boolean sameInstance) {
+        long head = LONGS.get(positions, HEAD);
+        long tail = LONGS.get(positions, TAIL);
+        for (long pos = head; pos < tail; pos++) {
+            int i = (int) pos & mask;
+            Object e = REFS.getAcquire(buffer, i);
+            // read after the element, a matching sequence means e was published in this lap
+            if (e == null || e == REMOVED || LONGS.getAcquire(sequences, i) != pos + 1) {
+                continue;
+            }
+            if ((sameInstance ? e == o : o.equals(e)) && REFS.compareAndSet(buffer, i, e, REMOVED)) {
+                LONGS.getAndIncrement(positions, REMOVED_COUNT);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    // a weakly consistent snapshot, its remove() takes the element out of the queue if it is still there
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long head = LONGS.get(positions, HEAD);
+        long tail = LONGS.get(positions, TAIL);
+        for (long pos = head; pos < tail; pos++) {
+            int i = (int) pos & mask;
+            Object e = REFS.getAcquire(buffer, i);
+            if (LONGS.getAcquire(sequences, i) == pos + 1 && e != null && e != REMOVED) {
+                snapshot.add((E) e);
+            }
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            E last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                MpmcArrayBlockingQueue.this.remove(last, true);
+                last = null;
+            }
+        };
+    }
+}
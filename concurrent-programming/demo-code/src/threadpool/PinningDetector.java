@@ -0,0 +1,83 @@
+package threadpool;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+// records JFR's jdk.VirtualThreadPinned events while it is open: a virtual thread that
+// blocks inside synchronized, or in a native frame, cannot unmount and holds its carrier
+// thread, so a few of them stall every other virtual thread.
+// before JDK 24 this is what MutexDemo.selfIncrement in CompareMutexAndCASDemo does,
+// sleeping while it holds the monitor. the event does not exist before JDK 21,
+// the recording is then empty. -Djdk.tracePinnedThreads=full prints the same stacks as they happen.
+public class PinningDetector implements AutoCloseable {
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    final Recording recording = new Recording();
+    List<RecordedEvent> events;
+
+    // pinnings shorter than the threshold are not recorded, JFR's default is 20ms
+    public PinningDetector(Duration threshold) {
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.setToDisk(true);
+        recording.start();
+    }
+
+    // stops the recording, the events are in start order
+    public List<RecordedEvent> stop() {
+        if (events != null) {
+            return events;
+        }
+        recording.stop();
+        try {
+            Path file = Files.createTempFile("pinning", ".jfr");
+            try {
+                recording.dump(file);
+                events = Collections.unmodifiableList(RecordingFile.readAllEvents(file));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read the pinning recording", e);
+        } finally {
+            recording.close();
+        }
+        return events;
+    }
+
+    public String report() {
+        List<RecordedEvent> pinned = stop();
+        StringBuilder sb = new StringBuilder().append(pinned.size()).append(" pinned virtual thread(s)");
+        Duration total = Duration.ZERO;
+        for (RecordedEvent event : pinned) {
+            total = total.plus(event.getDuration());
+        }
+        if (pinned.isEmpty()) {
+            return sb.toString();
+        }
+        sb.append(", ").append(total.toMillis()).append("ms in total, first at:");
+        RecordedStackTrace stackTrace = pinned.get(0).getStackTrace();
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                sb.append(System.lineSeparator()).append("    ")
+                    .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
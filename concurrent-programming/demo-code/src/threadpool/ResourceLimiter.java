@@ -0,0 +1,66 @@
+package threadpool;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+// caps how many tasks use each resource at a time, e.g. connections to one database.
+// a platform pool did this by accident through its size, with a virtual thread per task
+// nothing does: 10,000 tasks all reach the database at once.
+// the Semaphore parks a waiting virtual thread without pinning its carrier.
+public class ResourceLimiter {
+    final ConcurrentHashMap<String, Semaphore> limits = new ConcurrentHashMap<>();
+    final int defaultPermits;
+
+    public ResourceLimiter(int defaultPermits) {
+        if (defaultPermits <= 0) {
+            throw new IllegalArgumentException("defaultPermits must be positive");
+        }
+        this.defaultPermits = defaultPermits;
+    }
+
+    // set before the resource is first used, the permits of a semaphore in use cannot be swapped
+    public ResourceLimiter limit(String resource, int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        if (limits.putIfAbsent(resource, new Semaphore(permits)) != null) {
+            throw new IllegalStateException(resource + " is already limited");
+        }
+        return this;
+    }
+
+    public void run(String resource, Runnable task) throws InterruptedException {
+        Semaphore semaphore = semaphore(resource);
+        semaphore.acquire();
+        try {
+            task.run();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public <T> T call(String resource, Callable<T> task) throws Exception {
+        Semaphore semaphore = semaphore(resource);
+        semaphore.acquire();
+        try {
+            return task.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    // tasks the resource would admit right now
+    public int available(String resource) {
+        return semaphore(resource).availablePermits();
+    }
+
+    // tasks waiting for the resource, an estimate
+    public int waiting(String resource) {
+        return semaphore(resource).getQueueLength();
+    }
+
+    private Semaphore semaphore(String resource) {
+        return limits.computeIfAbsent(resource, r -> new Semaphore(defaultPermits));
+    }
+}
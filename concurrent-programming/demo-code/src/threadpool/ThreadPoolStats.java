@@ -0,0 +1,82 @@
+package threadpool;
+
+import metrics.LatencyHistogram;
+
+public final class ThreadPoolStats {
+    public final long submittedTaskCount;
+    public final long completedTaskCount;
+    public final long failedTaskCount;
+    public final long rejectedTaskCount;
+    public final int activeThreads;
+    public final int peakActiveThreads;
+    public final int poolSize;
+    public final int corePoolSize;
+    public final int maximumPoolSize;
+    public final int queueDepth;
+    public final int queueRemainingCapacity;
+    // in nanoseconds
+    public final LatencyHistogram.Snapshot queueWait;
+    public final LatencyHistogram.Snapshot execution;
+    // sampled when a task is submitted and when it starts
+    public final LatencyHistogram.Snapshot queueDepthAtSubmit;
+    public final LatencyHistogram.Snapshot activeThreadsAtStart;
+
+    ThreadPoolStats(long submittedTaskCount, long completedTaskCount, long failedTaskCount, long rejectedTaskCount,
+                    int activeThreads, int peakActiveThreads, int poolSize, int corePoolSize, int maximumPoolSize,
+                    int queueDepth, int queueRemainingCapacity,
+                    LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution,
+                    LatencyHistogram.Snapshot queueDepthAtSubmit, LatencyHistogram.Snapshot activeThreadsAtStart) {
+        this.submittedTaskCount = submittedTaskCount;
+        this.completedTaskCount = completedTaskCount;
+        this.failedTaskCount = failedTaskCount;
+        this.rejectedTaskCount = rejectedTaskCount;
+        this.activeThreads = activeThreads;
+        this.peakActiveThreads = peakActiveThreads;
+        this.poolSize = poolSize;
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.queueDepth = queueDepth;
+        this.queueRemainingCapacity = queueRemainingCapacity;
+        this.queueWait = queueWait;
+        this.execution = execution;
+        this.queueDepthAtSubmit = queueDepthAtSubmit;
+        this.activeThreadsAtStart = activeThreadsAtStart;
+    }
+
+    // share of the maximum pool that is busy right now
+    public double utilization() {
+        return maximumPoolSize == 0 ? 0 : (double) activeThreads / maximumPoolSize;
+    }
+
+    // share of the submitted tasks that were turned away
+    public double rejectionRate() {
+        return submittedTaskCount == 0 ? 0 : (double) rejectedTaskCount / submittedTaskCount;
+    }
+
+    // Little's law: the workers a pool needs to keep up with the observed arrival
+    // rate, given the observed mean execution time
+    public double requiredThreads(double tasksPerSecond) {
+        return tasksPerSecond * execution.mean() / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadPoolStats{" +
+            "submittedTaskCount=" + submittedTaskCount +
+            ", completedTaskCount=" + completedTaskCount +
+            ", failedTaskCount=" + failedTaskCount +
+            ", rejectedTaskCount=" + rejectedTaskCount +
+            ", activeThreads=" + activeThreads +
+            ", peakActiveThreads=" + peakActiveThreads +
+            ", poolSize=" + poolSize +
+            ", corePoolSize=" + corePoolSize +
+            ", maximumPoolSize=" + maximumPoolSize +
+            ", queueDepth=" + queueDepth +
+            ", queueRemainingCapacity=" + queueRemainingCapacity +
+            ", queueWait=" + queueWait +
+            ", execution=" + execution +
+            ", queueDepthAtSubmit=" + queueDepthAtSubmit +
+            ", activeThreadsAtStart=" + activeThreadsAtStart +
+            '}';
+    }
+}
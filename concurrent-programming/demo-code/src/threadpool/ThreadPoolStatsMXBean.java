@@ -0,0 +1,43 @@
+package threadpool;
+
+public interface ThreadPoolStatsMXBean {
+    long getSubmittedTaskCount();
+
+    long getCompletedTaskCount();
+
+    long getFailedTaskCount();
+
+    long getRejectedTaskCount();
+
+    int getActiveThreads();
+
+    int getPeakActiveThreads();
+
+    int getPoolSize();
+
+    int getCorePoolSize();
+
+    void setCorePoolSize(int corePoolSize);
+
+    int getMaximumPoolSize();
+
+    void setMaximumPoolSize(int maximumPoolSize);
+
+    int getQueueDepth();
+
+    long getQueueDepthP99();
+
+    double getUtilization();
+
+    long getQueueWaitP50Nanos();
+
+    long getQueueWaitP99Nanos();
+
+    long getQueueWaitMaxNanos();
+
+    long getExecutionP50Nanos();
+
+    long getExecutionP99Nanos();
+
+    long getExecutionMaxNanos();
+}
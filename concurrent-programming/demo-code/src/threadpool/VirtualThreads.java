@@ -0,0 +1,42 @@
+package threadpool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// virtual threads through reflection, the sources stay on java 11 and run on any later jdk.
+// JDK 21 has them, on 19 and 20 they are a preview and the factory throws
+// unless the jvm runs with --enable-preview, before that the method is missing.
+final class VirtualThreads {
+    static final Method NEW_EXECUTOR = newExecutorMethod();
+
+    private VirtualThreads() {
+    }
+
+    private static Method newExecutorMethod() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    // one new virtual thread per task, no pooling: they are cheap to create and must not be reused
+    static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null) {
+            throw new UnsupportedOperationException("virtual threads need JDK 21, or 19 with --enable-preview");
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
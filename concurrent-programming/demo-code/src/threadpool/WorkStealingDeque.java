@@ -0,0 +1,103 @@
+package threadpool;
+
+import atomicity.LongFieldHandle;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+
+// the Chase-Lev deque: the owner pushes and pops at the bottom without atomics
+// except when it takes the last task, thieves take from the top with one CAS.
+// the owner works LIFO on what it just produced, still hot in its cache,
+// thieves take the oldest tasks, which tend to be the largest pieces of work.
+// the array doubles when full and never shrinks; a thief may still read an old array,
+// which is fine because the owner never writes to it again.
+// a stolen slot keeps its task reachable until the owner overwrites it.
+final class WorkStealingDeque {
+    static final int INITIAL_CAPACITY = 1 << 8;
+    static final LongFieldHandle<WorkStealingDeque> TOP =
+        LongFieldHandle.newUpdater(MethodHandles.lookup(), WorkStealingDeque.class, "top");
+
+    volatile long top;
+    volatile long bottom;
+    volatile Runnable[] array = new Runnable[INITIAL_CAPACITY];
+
+    // owner only
+    void push(Runnable task) {
+        long b = bottom;
+        long t = top;
+        Runnable[] a = array;
+        if (b - t >= a.length) {
+            a = grow(a, t, b);
+        }
+        a[(int) b & (a.length - 1)] = task;
+        // publishes the slot to thieves
+        bottom = b + 1;
+    }
+
+    private Runnable[] grow(Runnable[] old, long t, long b) {
+        Runnable[] a = new Runnable[old.length << 1];
+        for (long i = t; i < b; i++) {
+            a[(int) i & (a.length - 1)] = old[(int) i & (old.length - 1)];
+        }
+        array = a;
+        return a;
+    }
+
+    // owner only, LIFO
+    Runnable pop() {
+        long b = bottom - 1;
+        Runnable[] a = array;
+        // the volatile store keeps the read of top below from moving above it,
+        // otherwise a thief and we could both take the last task
+        bottom = b;
+        long t = top;
+        if (t > b) {
+            // empty
+            bottom = b + 1;
+            return null;
+        }
+        int i = (int) b & (a.length - 1);
+        Runnable task = a[i];
+        if (t < b) {
+            // no thief can reach this slot, drop the reference
+            a[i] = null;
+            return task;
+        }
+        // the last task, whoever moves top past it owns it
+        if (!TOP.compareAndSet(this, t, t + 1)) {
+            task = null;
+        }
+        bottom = b + 1;
+        return task;
+    }
+
+    // any thread, FIFO; null when empty or another thread won the race
+    Runnable steal() {
+        long t = top;
+        long b = bottom;
+        if (t >= b) {
+            return null;
+        }
+        Runnable[] a = array;
+        Runnable task = a[(int) t & (a.length - 1)];
+        return TOP.compareAndSet(this, t, t + 1) ? task : null;
+    }
+
+    boolean isEmpty() {
+        return top >= bottom;
+    }
+
+    int size() {
+        return (int) Math.max(0, bottom - top);
+    }
+
+    // takes every task as a thief would, for shutdownNow
+    void drainTo(List<Runnable> tasks) {
+        while (!isEmpty()) {
+            Runnable task = steal();
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+    }
+}
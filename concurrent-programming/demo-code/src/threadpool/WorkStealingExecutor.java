@@ -0,0 +1,387 @@
+package threadpool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// an ExecutorService for many tiny tasks. a ThreadPoolExecutor puts every task through one
+// LinkedBlockingQueue, whose locks and signals every submitter and worker fight over.
+// here each worker has its own WorkStealingDeque and its own inbox: a task submitted from
+// a worker goes onto that worker's deque and usually runs on it, still in its cache;
+// other threads spread their tasks over the inboxes. an idle worker takes from its own
+// deque, then its inbox, then steals from the others, and only then parks.
+// batch() hands many tasks over in one inbox entry, a worker unpacks them onto its
+// deque where the others can steal them.
+// a task that throws reaches the worker's uncaught exception handler, the worker carries on.
+public class WorkStealingExecutor extends AbstractExecutorService {
+    static final int RUNNING = 0;
+    static final int SHUTDOWN = 1;
+    static final int STOP = 2;
+
+    final Worker[] workers;
+    // workers announced as parked, submitters only look for one to wake when this is positive
+    final AtomicInteger idle = new AtomicInteger();
+    // workers out of local work and looking through the others' queues
+    final AtomicInteger searching = new AtomicInteger();
+    final CountDownLatch terminated;
+    volatile int state = RUNNING;
+
+    public WorkStealingExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public WorkStealingExecutor(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        workers = new Worker[parallelism];
+        terminated = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(this, i);
+        }
+        for (Worker w : workers) {
+            w.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        Thread t = Thread.currentThread();
+        if (t instanceof Worker && ((Worker) t).executor == this && state == RUNNING) {
+            // the worker runs it itself unless somebody steals it first
+            Worker w = (Worker) t;
+            w.deque.push(command);
+            // shutdownNow may have drained the deque just before, take the task back.
+            // it sits at the bottom, so pop returns it unless it was stolen, and then
+            // a worker runs it or shutdownNow returns it
+            if (state != RUNNING && w.deque.pop() == command) {
+                throw new RejectedExecutionException("executor is shut down");
+            }
+            signalWork();
+            return;
+        }
+        enqueue(command);
+    }
+
+    // a Runnable or a Runnable[] from a batch
+    private void enqueue(Object task) {
+        if (state != RUNNING) {
+            throw new RejectedExecutionException("executor is shut down");
+        }
+        ConcurrentLinkedQueue<Object> inbox = workers[ThreadLocalRandom.current().nextInt(workers.length)].inbox;
+        inbox.offer(task);
+        // a shutdown in between may have let every worker exit without seeing the task
+        if (state != RUNNING && inbox.remove(task)) {
+            throw new RejectedExecutionException("executor is shut down");
+        }
+        signalWork();
+    }
+
+    // submits tasks in batches of the given size from one thread, not thread-safe.
+    // nothing runs before the batch fills up or is flushed, close() flushes
+    public Batch batch(int size) {
+        return new Batch(this, size);
+    }
+
+    // wakes a parked worker unless one is already searching for work, so a burst of
+    // submissions wakes workers one after another instead of all at once
+    void signalWork() {
+        if (idle.get() == 0 || searching.get() != 0 || !searching.compareAndSet(0, 1)) {
+            return;
+        }
+        // the worker we wake starts out counted as searching
+        for (Worker w : workers) {
+            if (w.parked.get() && w.parked.compareAndSet(true, false)) {
+                LockSupport.unpark(w);
+                return;
+            }
+        }
+        searching.decrementAndGet();
+    }
+
+    void runWorker(Worker w) {
+        boolean searching = false;
+        try {
+            while (state != STOP) {
+                Runnable task = w.deque.pop();
+                if (task == null) {
+                    task = unpack(w, w.inbox.poll());
+                }
+                if (task == null) {
+                    if (!searching) {
+                        searching = true;
+                        this.searching.incrementAndGet();
+                    }
+                    task = steal(w);
+                }
+                if (task != null) {
+                    if (searching) {
+                        searching = false;
+                        // the last searcher found work, there may be more: pass the search on
+                        if (this.searching.decrementAndGet() == 0) {
+                            signalWork();
+                        }
+                    }
+                    runTask(w, task);
+                    continue;
+                }
+                searching = false;
+                this.searching.decrementAndGet();
+                if (!awaitWork(w)) {
+                    return;
+                }
+                searching = true;
+            }
+        } finally {
+            if (searching) {
+                this.searching.decrementAndGet();
+            }
+            terminated.countDown();
+        }
+    }
+
+    private void runTask(Worker w, Runnable task) {
+        // as in ThreadPoolExecutor, an interrupt aimed at an earlier task does not leak into
+        // this one, only a stopping executor leaves its workers interrupted
+        if ((state == STOP || (Thread.interrupted() && state == STOP)) && !w.isInterrupted()) {
+            w.interrupt();
+        }
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            w.getUncaughtExceptionHandler().uncaughtException(w, ex);
+        }
+    }
+
+    private Runnable findTask(Worker w) {
+        Runnable task = w.deque.pop();
+        if (task == null) {
+            task = unpack(w, w.inbox.poll());
+        }
+        if (task == null) {
+            task = steal(w);
+        }
+        return task;
+    }
+
+    private Runnable steal(Worker w) {
+        int n = workers.length;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            Worker victim = workers[(start + i) % n];
+            if (victim == w) {
+                continue;
+            }
+            Runnable task = victim.deque.steal();
+            if (task == null) {
+                task = unpack(w, victim.inbox.poll());
+            }
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    // the first task of a batch runs now, the rest go on our deque for others to steal
+    private Runnable unpack(Worker w, Object entry) {
+        if (!(entry instanceof Runnable[])) {
+            return (Runnable) entry;
+        }
+        Runnable[] batch = (Runnable[]) entry;
+        for (int i = batch.length - 1; i > 0; i--) {
+            w.deque.push(batch[i]);
+        }
+        if (state == STOP) {
+            // shutdownNow may have drained our deque before the rest got in and would never see them.
+            // the batch was taken before the stop, so like its first task the rest still run here
+            return () -> {
+                runTask(w, batch[0]);
+                for (Runnable task; (task = w.deque.pop()) != null; ) {
+                    runTask(w, task);
+                }
+            };
+        }
+        if (batch.length > 1) {
+            signalWork();
+        }
+        return batch[0];
+    }
+
+    private boolean hasWork() {
+        for (Worker w : workers) {
+            if (!w.deque.isEmpty() || !w.inbox.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // parks until signalled, false once the executor is shut down and out of work.
+    // returns true counted as searching, by the signal that woke us or by ourselves
+    private boolean awaitWork(Worker w) {
+        w.parked.set(true);
+        idle.incrementAndGet();
+        try {
+            for (;;) {
+                // a leftover interrupt would make park return at once and the idle worker spin.
+                // shutdownNow sets STOP before it interrupts, so the checks below still see it
+                Thread.interrupted();
+                if (!w.parked.get()) {
+                    if (state == STOP) {
+                        searching.decrementAndGet();
+                        return false;
+                    }
+                    return true;
+                }
+                // announced first, now look again: a submitter either sees us idle or we see its task
+                boolean stop = state == STOP || (state != RUNNING && !hasWork());
+                if (stop || hasWork()) {
+                    if (w.parked.compareAndSet(true, false)) {
+                        if (stop) {
+                            return false;
+                        }
+                        searching.incrementAndGet();
+                        return true;
+                    }
+                    // a signal got in first, take over its count
+                    continue;
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            idle.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (state == RUNNING) {
+            state = SHUTDOWN;
+        }
+        for (Worker w : workers) {
+            LockSupport.unpark(w);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        state = STOP;
+        List<Runnable> tasks = new ArrayList<>();
+        for (Worker w : workers) {
+            w.interrupt();
+        }
+        for (Worker w : workers) {
+            w.deque.drainTo(tasks);
+            Object entry;
+            while ((entry = w.inbox.poll()) != null) {
+                if (entry instanceof Runnable[]) {
+                    tasks.addAll(Arrays.asList((Runnable[]) entry));
+                } else {
+                    tasks.add((Runnable) entry);
+                }
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    // tasks waiting in the deques and inboxes, an estimate; a batch counts once
+    public int getQueuedTaskCount() {
+        int count = 0;
+        for (Worker w : workers) {
+            count += w.deque.size() + w.inbox.size();
+        }
+        return count;
+    }
+
+    static final class Worker extends Thread {
+        final WorkStealingExecutor executor;
+        final WorkStealingDeque deque = new WorkStealingDeque();
+        final ConcurrentLinkedQueue<Object> inbox = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean parked = new AtomicBoolean();
+
+        Worker(WorkStealingExecutor executor, int index) {
+            super("work-stealing-" + index);
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            executor.runWorker(this);
+        }
+    }
+
+    public static final class Batch implements Executor, AutoCloseable {
+        final WorkStealingExecutor executor;
+        final int size;
+        Runnable[] tasks;
+        int count;
+
+        Batch(WorkStealingExecutor executor, int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("size must be positive");
+            }
+            this.executor = executor;
+            this.size = size;
+            this.tasks = new Runnable[size];
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            tasks[count++] = command;
+            if (count == size) {
+                flush();
+            }
+        }
+
+        public void flush() {
+            if (count == 0) {
+                return;
+            }
+            Runnable[] full = count == size ? tasks : Arrays.copyOf(tasks, count);
+            tasks = new Runnable[size];
+            count = 0;
+            executor.enqueue(full);
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
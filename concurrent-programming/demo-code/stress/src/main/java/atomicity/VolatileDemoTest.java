@@ -0,0 +1,108 @@
+package atomicity;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// VolatileDemo's SyncedIncrement.add(1) from two threads, r1 is the value afterwards.
+// "1" is a lost update: volatile makes the read and the write visible, not the pair atomic.
+public class VolatileDemoTest {
+
+    @JCStressTest
+    @Outcome(id = "2", expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "1", expect = Expect.ACCEPTABLE_INTERESTING, desc = "lost update")
+    @State
+    public static class Plain {
+        int value;
+
+        void add(int i) {
+            value = value + i;
+        }
+
+        @Actor
+        public void actor1() {
+            add(1);
+        }
+
+        @Actor
+        public void actor2() {
+            add(1);
+        }
+
+        @Arbiter
+        public void arbiter(I_Result r) {
+            r.r1 = value;
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "2", expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "1", expect = Expect.ACCEPTABLE_INTERESTING, desc = "lost update, volatile does not make += atomic")
+    @State
+    public static class Volatile {
+        volatile int value;
+
+        void add(int i) {
+            value = value + i;
+        }
+
+        @Actor
+        public void actor1() {
+            add(1);
+        }
+
+        @Actor
+        public void actor2() {
+            add(1);
+        }
+
+        @Arbiter
+        public void arbiter(I_Result r) {
+            r.r1 = value;
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "2", expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "1", expect = Expect.FORBIDDEN, desc = "getAndAdd is atomic")
+    @State
+    public static class GetAndAdd {
+        static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(GetAndAdd.class, "value", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        int value;
+
+        void add(int i) {
+            VALUE.getAndAdd(this, i);
+        }
+
+        @Actor
+        public void actor1() {
+            add(1);
+        }
+
+        @Actor
+        public void actor2() {
+            add(1);
+        }
+
+        @Arbiter
+        public void arbiter(I_Result r) {
+            r.r1 = value;
+        }
+    }
+}
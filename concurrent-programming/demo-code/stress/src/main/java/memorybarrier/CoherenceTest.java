@@ -0,0 +1,65 @@
+package memorybarrier;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// two reads of the same variable while another thread writes it.
+// "1, 0" means the second read went back in time. opaque, the cheapest mode above plain,
+// already rules that out, which is what a polled flag or progress counter needs.
+public class CoherenceTest {
+
+    @JCStressTest
+    @Outcome(id = {"0, 0", "0, 1", "1, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "1, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "plain reads may be reordered or merged")
+    @State
+    public static class Plain {
+        int x;
+
+        @Actor
+        public void writer() {
+            x = 1;
+        }
+
+        @Actor
+        public void reader(II_Result r) {
+            r.r1 = x;
+            r.r2 = x;
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"0, 0", "0, 1", "1, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "1, 0", expect = Expect.FORBIDDEN, desc = "opaque accesses to one variable are coherent")
+    @State
+    public static class Opaque {
+        static final VarHandle X;
+
+        static {
+            try {
+                X = MethodHandles.lookup().findVarHandle(Opaque.class, "x", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        int x;
+
+        @Actor
+        public void writer() {
+            X.setOpaque(this, 1);
+        }
+
+        @Actor
+        public void reader(II_Result r) {
+            r.r1 = (int) X.getOpaque(this);
+            r.r2 = (int) X.getOpaque(this);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package memorybarrier;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZI_Result;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// the update/show pair of NoMemoryBarrierDemo and WithMemoryBarrierDemo:
+// one actor writes x and then sets isModified, the other reads isModified and then x.
+// r1 is the isModified the reader saw, r2 the x.
+// "true, 0" means the flag was seen before the data it publishes.
+public class MessagePassingTest {
+
+    // NoMemoryBarrierDemo.update() sets the flag before x, the sleep in between only widens
+    // a window that is there anyway: "true, 0" happens without any reordering
+    @JCStressTest
+    @Outcome(id = {"false, 0", "false, 1", "true, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "true, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "flag set first, in program order")
+    @State
+    public static class FlagFirst {
+        int x;
+        boolean isModified;
+
+        @Actor
+        public void update() {
+            isModified = true;
+            x = 1;
+        }
+
+        @Actor
+        public void show(ZI_Result r) {
+            r.r1 = isModified;
+            r.r2 = x;
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"false, 0", "false, 1", "true, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "true, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "plain stores or loads reordered")
+    @State
+    public static class Plain {
+        int x;
+        boolean isModified;
+
+        @Actor
+        public void update() {
+            x = 1;
+            isModified = true;
+        }
+
+        @Actor
+        public void show(ZI_Result r) {
+            r.r1 = isModified;
+            r.r2 = x;
+        }
+    }
+
+    // WithMemoryBarrierDemo
+    @JCStressTest
+    @Outcome(id = {"false, 0", "false, 1", "true, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "true, 0", expect = Expect.FORBIDDEN, desc = "volatile write of the flag must publish x")
+    @State
+    public static class Volatile {
+        volatile int x;
+        volatile boolean isModified;
+
+        @Actor
+        public void update() {
+            x = 1;
+            isModified = true;
+        }
+
+        @Actor
+        public void show(ZI_Result r) {
+            r.r1 = isModified;
+            r.r2 = x;
+        }
+    }
+
+    // only the flag is volatile, x is plain: still enough to publish x
+    @JCStressTest
+    @Outcome(id = {"false, 0", "false, 1", "true, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "true, 0", expect = Expect.FORBIDDEN, desc = "volatile flag must publish the plain x")
+    @State
+    public static class VolatileFlag {
+        int x;
+        volatile boolean isModified;
+
+        @Actor
+        public void update() {
+            x = 1;
+            isModified = true;
+        }
+
+        @Actor
+        public void show(ZI_Result r) {
+            r.r1 = isModified;
+            r.r2 = x;
+        }
+    }
+
+    // release/acquire is all message passing needs
+    @JCStressTest
+    @Outcome(id = {"false, 0", "false, 1", "true, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "true, 0", expect = Expect.FORBIDDEN, desc = "release store must publish x to the acquire load")
+    @State
+    public static class ReleaseAcquire {
+        static final VarHandle IS_MODIFIED;
+
+        static {
+            try {
+                IS_MODIFIED = MethodHandles.lookup().findVarHandle(ReleaseAcquire.class, "isModified", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        int x;
+        boolean isModified;
+
+        @Actor
+        public void update() {
+            x = 1;
+            IS_MODIFIED.setRelease(this, true);
+        }
+
+        @Actor
+        public void show(ZI_Result r) {
+            r.r1 = (boolean) IS_MODIFIED.getAcquire(this);
+            r.r2 = x;
+        }
+    }
+
+    // opaque only promises the flag itself is eventually seen, it orders nothing around it
+    @JCStressTest
+    @Outcome(id = {"false, 0", "false, 1", "true, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "true, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "opaque does not publish x")
+    @State
+    public static class Opaque {
+        static final VarHandle IS_MODIFIED;
+
+        static {
+            try {
+                IS_MODIFIED = MethodHandles.lookup().findVarHandle(Opaque.class, "isModified", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        int x;
+        boolean isModified;
+
+        @Actor
+        public void update() {
+            x = 1;
+            IS_MODIFIED.setOpaque(this, true);
+        }
+
+        @Actor
+        public void show(ZI_Result r) {
+            r.r1 = (boolean) IS_MODIFIED.getOpaque(this);
+            r.r2 = x;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package memorybarrier;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Dekker: each actor writes its own variable and then reads the other's.
+// "0, 0" means both reads passed the other actor's write. BravoReadWriteLock and
+// StripedReadWriteLock rely on this being impossible between a reader publishing itself
+// and a writer announcing itself, which takes volatile (sequentially consistent) accesses:
+// release/acquire is not enough.
+public class StoreBufferingTest {
+
+    @JCStressTest
+    @Outcome(id = {"0, 1", "1, 0", "1, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "0, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "stores buffered past the loads")
+    @State
+    public static class Plain {
+        int x;
+        int y;
+
+        @Actor
+        public void actor1(II_Result r) {
+            x = 1;
+            r.r1 = y;
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            y = 1;
+            r.r2 = x;
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"0, 1", "1, 0", "1, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "0, 0", expect = Expect.FORBIDDEN, desc = "volatile accesses are sequentially consistent")
+    @State
+    public static class Volatile {
+        volatile int x;
+        volatile int y;
+
+        @Actor
+        public void actor1(II_Result r) {
+            x = 1;
+            r.r1 = y;
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            y = 1;
+            r.r2 = x;
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"0, 1", "1, 0", "1, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "0, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "a release store may pass a later acquire load")
+    @State
+    public static class ReleaseAcquire {
+        static final VarHandle X;
+        static final VarHandle Y;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                X = lookup.findVarHandle(ReleaseAcquire.class, "x", int.class);
+                Y = lookup.findVarHandle(ReleaseAcquire.class, "y", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        int x;
+        int y;
+
+        @Actor
+        public void actor1(II_Result r) {
+            X.setRelease(this, 1);
+            r.r1 = (int) Y.getAcquire(this);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            Y.setRelease(this, 1);
+            r.r2 = (int) X.getAcquire(this);
+        }
+    }
+
+    // a full fence between the release store and the acquire load restores Dekker
+    @JCStressTest
+    @Outcome(id = {"0, 1", "1, 0", "1, 1"}, expect = Expect.ACCEPTABLE, desc = "")
+    @Outcome(id = "0, 0", expect = Expect.FORBIDDEN, desc = "the full fence orders the store before the load")
+    @State
+    public static class ReleaseFenceAcquire {
+        static final VarHandle X;
+        static final VarHandle Y;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                X = lookup.findVarHandle(ReleaseFenceAcquire.class, "x", int.class);
+                Y = lookup.findVarHandle(ReleaseFenceAcquire.class, "y", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        int x;
+        int y;
+
+        @Actor
+        public void actor1(II_Result r) {
+            X.setRelease(this, 1);
+            VarHandle.fullFence();
+            r.r1 = (int) Y.getAcquire(this);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            Y.setRelease(this, 1);
+            VarHandle.fullFence();
+            r.r2 = (int) X.getAcquire(this);
+        }
+    }
+}